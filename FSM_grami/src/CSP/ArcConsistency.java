@@ -0,0 +1,254 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package CSP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import utilities.MyPair;
+
+import dataStructures.IntRange;
+import dataStructures.NodeSet;
+import dataStructures.myNode;
+
+/**
+ * ALE - arc consistency of the domains of a pattern (AC-3 with residual supports, as AC-2001/AC-3rm).
+ * Arc k is the k-th constraint "variable A -edge-> variable B" (the distanceConstrainedWith lists, in variable order), 
+ * and revising it keeps the nodes of A with a neighbor in B and the nodes of B with a neighbor in A.
+ * The work queue holds arc indices (each at most once), and when a domain shrinks every other arc of its variable is queued again.
+ * For each arc and side, the neighbor that supported a node last time is remembered, and the node is only checked 
+ * against its neighbors again when that one has left the other domain. The residues are kept across runs 
+ * (the domains only shrink), in a small direct mapped table per side: a lost residue only costs a new scan.
+ */
+public class ArcConsistency 
+{
+	private static final int MAX_RESIDUES = 1<<14; //per arc and side
+	
+	private final Variable[] variables;
+	private final int[] arcA;
+	private final int[] arcB;
+	private final double[] arcLabel;
+	private final int[][] arcsOf; //variable ~ the arcs it is in
+	private final Residues[] forward; //nodes of A ~ their neighbor in B
+	private final Residues[] backward; //nodes of B ~ their neighbor in A
+	
+	private final int[] queue;
+	private final boolean[] queued;
+	private int head;
+	private int queueSize;
+	
+	public ArcConsistency(Variable[] variables)
+	{
+		this.variables=variables;
+		int numberOfArcs=0;
+		int[] degrees= new int[variables.length];
+		for (int i = 0; i < variables.length; i++) 
+		{
+			ArrayList<MyPair<Integer, Double>> list=variables[i].getDistanceConstrainedWith();
+			numberOfArcs+=list.size();
+			degrees[i]+=list.size();
+			for (int j = 0; j < list.size(); j++) 
+				degrees[list.get(j).getA()]++;
+		}
+		arcA= new int[numberOfArcs];
+		arcB= new int[numberOfArcs];
+		arcLabel= new double[numberOfArcs];
+		arcsOf= new int[variables.length][];
+		for (int i = 0; i < variables.length; i++) 
+			arcsOf[i]= new int[degrees[i]];
+		Arrays.fill(degrees, 0);
+		int k=0;
+		for (int i = 0; i < variables.length; i++) 
+		{
+			ArrayList<MyPair<Integer, Double>> list=variables[i].getDistanceConstrainedWith();
+			for (int j = 0; j < list.size(); j++) 
+			{
+				int b=list.get(j).getA();
+				arcA[k]=i;
+				arcB[k]=b;
+				arcLabel[k]=list.get(j).getB();
+				arcsOf[i][degrees[i]++]=k;
+				arcsOf[b][degrees[b]++]=k;
+				k++;
+			}
+		}
+		forward= new Residues[numberOfArcs];
+		backward= new Residues[numberOfArcs];
+		queue= new int[numberOfArcs];
+		queued= new boolean[numberOfArcs];
+	}
+	
+	public Variable[] getVariables()
+	{
+		return variables;
+	}
+	
+	/**
+	 * refines the domains until every arc is consistent, or some domain has less than freqThreshold nodes 
+	 */
+	public void run(int freqThreshold)
+	{
+		head=0;
+		queueSize=0;
+		for (int k = 0; k < arcA.length; k++) 
+			enqueue(k);
+		
+		while(queueSize>0)
+		{
+			int k=queue[head];
+			head= head+1==queue.length ? 0 : head+1;
+			queueSize--;
+			queued[k]=false;
+			Variable v1=variables[arcA[k]];
+			Variable v2=variables[arcB[k]];
+			if(v1.getListSize()<freqThreshold || v2.getListSize()<freqThreshold)
+				break;
+			
+			if(revise(k, v1, v2, true))
+			{
+				if(v1.getListSize()<freqThreshold)
+					break;
+				enqueueArcsOf(arcA[k], k);
+			}
+			if(revise(k, v2, v1, false))
+			{
+				if(v2.getListSize()<freqThreshold)
+					break;
+				enqueueArcsOf(arcB[k], k);
+			}
+		}
+		//what is left is not needed any more
+		while(queueSize>0)
+		{
+			queued[queue[head]]=false;
+			head= head+1==queue.length ? 0 : head+1;
+			queueSize--;
+		}
+	}
+	
+	private void enqueue(int k)
+	{
+		if(queued[k])
+			return;
+		queued[k]=true;
+		int tail=head+queueSize;
+		if(tail>=queue.length)
+			tail-=queue.length;
+		queue[tail]=k;
+		queueSize++;
+	}
+	
+	private void enqueueArcsOf(int variable, int except)
+	{
+		int[] arcs=arcsOf[variable];
+		for (int i = 0; i < arcs.length; i++) 
+		{
+			if(arcs[i]!=except)
+				enqueue(arcs[i]);
+		}
+	}
+	
+	/**
+	 * removes the nodes of v without a neighbor in other through arc k (v is its A side when outgoing)
+	 * @return true if some node was removed
+	 */
+	private boolean revise(int k, Variable v, Variable other, boolean outgoing)
+	{
+		NodeSet list=v.getList();
+		NodeSet otherList=other.getList();
+		Residues residues= getResidues(k, outgoing, list.size());
+		boolean changed=false;
+		for (Iterator<myNode> it = list.iterator(); it.hasNext();)
+		{
+			myNode node=it.next();
+			if(!isSupported(node, other.getLabel(), arcLabel[k], outgoing, otherList, residues))
+			{
+				it.remove();
+				changed=true;
+			}
+		}
+		return changed;
+	}
+	
+	private static boolean isSupported(myNode node, int otherLabel, double edgeLabel, boolean outgoing, NodeSet otherList, Residues residues)
+	{
+		int residue=residues.get(node.getID());
+		if(residue>=0 && otherList.contains(residue))
+			return true;
+		IntRange neighbors= outgoing ? node.getRechableWithNodeIDs(otherLabel, edgeLabel) : node.getRechableByNodeIDs(otherLabel, edgeLabel);
+		for (int i = 0; i < neighbors.size(); i++) 
+		{
+			int neighborID=neighbors.get(i);
+			if(otherList.contains(neighborID))
+			{
+				residues.put(node.getID(), neighborID);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private Residues getResidues(int k, boolean outgoing, int domainSize)
+	{
+		Residues[] table= outgoing ? forward : backward;
+		if(table[k]==null)
+			table[k]= new Residues(domainSize);
+		return table[k];
+	}
+	
+	//node ID ~ its last support, a node that collides with another one in the table just loses its entry
+	private static class Residues
+	{
+		private final int[] nodes;
+		private final int[] supports;
+		private final int mask;
+		
+		Residues(int domainSize)
+		{
+			int capacity=16;
+			while(capacity<domainSize && capacity<MAX_RESIDUES)
+				capacity<<=1;
+			nodes= new int[capacity];
+			supports= new int[capacity];
+			Arrays.fill(nodes, -1);
+			mask=capacity-1;
+		}
+		
+		private int slot(int nodeID)
+		{
+			int h=nodeID*0x9E3779B9;
+			return (h^(h>>>16))&mask;
+		}
+		
+		int get(int nodeID)
+		{
+			int slot=slot(nodeID);
+			return nodes[slot]==nodeID ? supports[slot] : -1;
+		}
+		
+		void put(int nodeID, int support)
+		{
+			int slot=slot(nodeID);
+			nodes[slot]=nodeID;
+			supports[slot]=support;
+		}
+	}
+}
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 
 import pruning.SPpruner;
+import pruning.SiblingDomains;
 
 import dataStructures.ConnectedComponent;
 import dataStructures.Graph;
@@ -36,10 +37,16 @@ public class ConstraintGraph
 	private Query qry;
 	
 	public ConstraintGraph(Graph graph,Query qry,HashMap<Integer, HashSet<Integer>> nonCandidates) 
+	{
+		this(graph, qry, nonCandidates, null);
+	}
+	
+	//ALE - the variables of the parent pattern start from its domains (siblings can be null)
+	public ConstraintGraph(Graph graph,Query qry,HashMap<Integer, HashSet<Integer>> nonCandidates, SiblingDomains siblings) 
 	{
 		this.qry=qry;		
 		SPpruner sp = new SPpruner();
-		sp.getPrunedLists(graph, qry,nonCandidates);
+		sp.getPrunedLists(graph, qry,nonCandidates,siblings);
 		variables= sp.getVariables(); //ALE in SPpruner, when we call getPrunedLists we generate variables array. Variable objects include node ID, their label, and the list of other nodes with the same label 
 	}
 	
@@ -19,21 +19,22 @@ along with Grami.  If not, see <http://www.gnu.org/licenses/>.
 
 package CSP;
 
-import java.awt.Point;
 //import java.math.BigDecimal;
 //import java.math.BigInteger;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Vector;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import automorphism.Automorphism;
 
@@ -45,9 +46,12 @@ import utilities.MyPair;
 import utilities.Settings;
 import utilities.Util;
 
+import dataStructures.CSRAdjacency;
 import dataStructures.ConnectedComponent;
 import dataStructures.HPListGraph;
 import dataStructures.IntIterator;
+import dataStructures.IntRange;
+import dataStructures.NodeSet;
 import dataStructures.Query;
 import dataStructures.StaticData;
 import dataStructures.myNode;
@@ -56,24 +60,14 @@ import decomposer.Decomposer;
 public class DFSSearch
 {
 	
-    class StopTask extends TimerTask {
-        public void run() {
-        	if(Settings.LimitedTime)
-        	{
-        		System.out.format("Time's up!%n");
-        		stopSearching();
-        	}
-        }
-    }
-	
-    
 	private Variable[] variables;
 	private Variable[] result;
 	private int resultCounter=0;
-	private HashSet<Integer> visitedVariables;
+	private VariableOrdering ordering; //ALE
+	private ArcConsistency arcConsistency; //ALE
 	private SearchOrder sOrder;
 	private int minFreqThreshold;
-	private Timer timer;
+	private TimeBudget budget= new TimeBudget(TimeBudget.getAdaptiveMillis(Settings.searchTimeLimit));
 	private Query qry;
 	private BigInteger numberOfIterations;
 	private BigDecimal worst;
@@ -82,7 +76,8 @@ public class DFSSearch
 
 	public static int COSTTHRESHOLD=1;
 	
-	private volatile boolean isStopped=false;
+	//ALE - shared by all the searches when Settings.searchThreads>1
+	private static ForkJoinPool searchPool;
 	
 	private HashMap<Integer, HashSet<Integer>> nonCandidates;
 	
@@ -90,6 +85,24 @@ public class DFSSearch
 		return nonCandidates;
 	}
 	
+	//ALE - the embeddings found by this search, and the ones of the parent pattern that are completed before searching
+	private Witnesses witnesses;
+	private Witnesses parentWitnesses;
+	
+	//at most this many parent embeddings are tried for a candidate
+	private static final int MAX_WITNESS_TRIES = 64;
+	
+	public Witnesses getWitnesses() {
+		return witnesses;
+	}
+	
+	/**
+	 * @param parentWitnesses embeddings of the pattern this one extends (its variables have the same indices)
+	 */
+	public void setParentWitnesses(Witnesses parentWitnesses) {
+		this.parentWitnesses = parentWitnesses;
+	}
+	
 	
 
 	
@@ -105,11 +118,27 @@ public class DFSSearch
 		result= new Variable[variables.length];
 		for (int i = 0; i < variables.length; i++) 
 		{
-			HashMap<Integer, myNode> list = new HashMap<Integer, myNode>();
+			NodeSet list = new NodeSet(variables[i].getList().getUniverse());
 			result[i]= new Variable(variables[i].getID(), variables[i].getLabel(),list,variables[i].getDistanceConstrainedWith(),variables[i].getDistanceConstrainedBy()); 
 		}
-		visitedVariables= new HashSet<Integer>();
+		ordering= VariableOrderings.getDefault();
 		sOrder= new SearchOrder(variables.length);
+		if(Settings.witnessLimit>0)
+			witnesses= new Witnesses(variables.length);
+	}
+	
+	//ALE - a worker that shares the domains (and the parent embeddings) of its parent but has its own search order and time budget
+	private DFSSearch(DFSSearch parent)
+	{
+		minFreqThreshold=parent.minFreqThreshold;
+		nonCandidates=parent.nonCandidates;
+		variables=parent.variables;
+		qry=parent.qry;
+		result=parent.result;
+		parentWitnesses=parent.parentWitnesses;
+		ordering=parent.ordering;
+		sOrder= new SearchOrder(parent.sOrder);
+		budget= new TimeBudget(parent.budget.getMillis());
 	}
 	
 	//for automorphisms and non-cached search
@@ -122,130 +151,28 @@ public class DFSSearch
 		result= new Variable[variables.length];
 		for (int i = 0; i < variables.length; i++) 
 		{
-			HashMap<Integer, myNode> list = new HashMap<Integer, myNode>();
+			NodeSet list = new NodeSet(variables[i].getList().getUniverse());
 			result[i]= new Variable(variables[i].getID(), variables[i].getLabel(),list,variables[i].getDistanceConstrainedWith(),variables[i].getDistanceConstrainedBy()); 
 		}
-		visitedVariables= new HashSet<Integer>();
+		ordering= VariableOrderings.getDefault();
 		sOrder= new SearchOrder(variables.length);
 	}
 	
+	//ALE - the engine (and its residues) is kept for the domains of this search
 	private void AC_3_New(Variable[] input, int freqThreshold)
 	{
-		LinkedList<VariablePair> Q= new LinkedList<VariablePair>();
-		HashSet<String> contains = new HashSet<String> ();
-		VariablePair vp;
-		//initialize...
-		for (int i = 0; i < input.length; i++) 
-		{
-			Variable currentVar= input[i];
-			ArrayList<MyPair<Integer, Double>> list=currentVar.getDistanceConstrainedWith();
-			for (int j = 0; j < list.size(); j++) 
-			{
-				Variable consVar=variables[list.get(j).getA()];
-				vp =new VariablePair(currentVar,consVar,list.get(j).getB());
-				Q.add(vp);
-				contains.add(vp.getString());
-				
-			}
-		}
-		
-		while(!Q.isEmpty())
-		{			
-			vp = Q.poll();
-			contains.remove(vp.getString());
-			Variable v1 = vp.v1;
-			Variable v2 = vp.v2;
-
-			if(v1.getListSize()<freqThreshold || v2.getListSize()<freqThreshold) return;
-			int oldV1Size = v1.getListSize();
-			int oldV2Size = v2.getListSize();
-			refine_Newest(v1, v2, vp.edgeLabel, freqThreshold);
-			if(oldV1Size!=v1.getListSize())
-			{
-				if(v1.getListSize()<freqThreshold) return;
-				//add to queue
-				ArrayList<MyPair<Integer, Double>> list=v1.getDistanceConstrainedBy();
-				for (int j = 0; j < list.size(); j++) 
-				{
-					Integer tempMP = list.get(j).getA(); 
-					Variable consVar=variables[tempMP];
-					vp =new VariablePair(consVar,v1,list.get(j).getB());
-					if(!contains.contains(vp.getString()))
-					{
-						insertInOrder(Q, vp);
-						//add new variables at the begining
-						contains.add(vp.getString());
-					}
-				}
-			}
-			if(oldV2Size!=v2.getListSize())
-			{
-				if(v2.getListSize()<freqThreshold) return;
-				//add to queue
-				ArrayList<MyPair<Integer, Double>> list=v2.getDistanceConstrainedBy();
-				for (int j = 0; j < list.size(); j++) 
-				{
-					Variable consVar=variables[list.get(j).getA()];
-					vp =new VariablePair(consVar,v2,list.get(j).getB());
-					if(!contains.contains(vp.getString()))
-					{
-						insertInOrder(Q, vp);
-						contains.add(vp.getString());
-					}
-				}
-			}
-		}
-	}
-	
-	/**
-	 * fast refine code
-	 */
-	private void refine_Newest(Variable v1, Variable v2, double edgeLabel, int freqThreshold)
-	{
-		HashMap<Integer,myNode> listA,listB;
-		
-		int labelB=v2.getLabel();//lebel of my neighbor
-		listA=v1.getList();//the first column
-		listB=v2.getList();//the second column
-		HashMap<Integer,myNode> newList= new HashMap<Integer,myNode>();//the newly assigned first column
-		HashMap<Integer, myNode> newReachableListB = new HashMap<Integer, myNode>();//the newly asigned second column
-		
-		//go over the first column
-		for (Iterator<myNode> iterator = listA.values().iterator(); iterator.hasNext();)
-		{
-			myNode n1= iterator.next();//get the current node
-			if(n1.hasReachableNodes()==false)//prune a node without reachable nodes
-				continue;
-			
-			ArrayList<MyPair<Integer, Double>> neighbors = n1.getRechableWithNodeIDs(labelB, edgeLabel);//get a list of current node's neighbors
-			if(neighbors==null)
-				continue;
-				
-			for (Iterator<MyPair<Integer, Double>> iterator2 = neighbors.iterator(); iterator2.hasNext();)//go over each neighbor
-			{
-				MyPair<Integer, Double> mp = iterator2.next();//get current neighbor details
-				//check the second column if it contains the current neighbor node
-				if(listB.containsKey(mp.getA()))
-				{
-					//if true, put the current node in the first column, and the neighbor node in the second column
-					newList.put(n1.getID(),n1);
-					newReachableListB.put(mp.getA(), listB.get(mp.getA()));
-				}
-			}
-		}
-		
-		//set the newly assigned columns
-		v1.setList(newList);
-		v2.setList(newReachableListB);
+		if(arcConsistency==null || arcConsistency.getVariables()!=input)
+			arcConsistency= new ArcConsistency(input);
+		arcConsistency.run(freqThreshold);
 	}
 	
 	public int hasBeenPrecomputed(Variable[] autos,int[] preComputed,int index) //if returns same index should search in it!!
 	{
-		HashMap<Integer, myNode> list = autos[index].getList();
+		NodeSet list = autos[index].getList();
 		
-		for (Iterator<Integer> iterator = list.keySet().iterator(); iterator.hasNext();) 
+		for (Iterator<myNode> iterator = list.iterator(); iterator.hasNext();) 
 		{
-			int nodeIndex = iterator.next();
+			int nodeIndex = iterator.next().getID();
 			if(preComputed[nodeIndex]==1)
 				return nodeIndex;
 		}		
@@ -335,13 +262,18 @@ public class DFSSearch
 			return;
 		if(variables.length==2 && variables[0].getLabel()!=variables[1].getLabel())
 		{
-			int nodeAIdx = qry.getListGraph().getNodeA(0);
-			int nodeBIdx = qry.getListGraph().getNodeB(0);
-			int nodeALabel = (Integer) qry.getListGraph().getNodeLabel(nodeAIdx);
-			int nodeBLabel = (Integer) qry.getListGraph().getNodeLabel(nodeBIdx);
-			int edgeLabel = qry.getListGraph().getEdge(nodeAIdx, nodeBIdx);
-			String sig = nodeALabel+"_"+edgeLabel+"_"+nodeBLabel;
-			if(StaticData.getHashedEdgesFreq(sig)>=minFreqThreshold)
+			HPListGraph<Integer, Double> listGraph = qry.getListGraph();
+			int nodeAIdx = listGraph.getNodeA(0);
+			int nodeBIdx = listGraph.getNodeB(0);
+			if(listGraph.getDirection(0)<0)
+			{
+				nodeAIdx = listGraph.getNodeB(0);
+				nodeBIdx = listGraph.getNodeA(0);
+			}
+			int nodeALabel = (Integer) listGraph.getNodeLabel(nodeAIdx);
+			int nodeBLabel = (Integer) listGraph.getNodeLabel(nodeBIdx);
+			double edgeLabel = Double.parseDouble(listGraph.getEdgeLabel(0)+"");
+			if(StaticData.getEdgeSignatureFreq(nodeALabel, edgeLabel, nodeBLabel)>=minFreqThreshold)
 			{
 				result=cloneDomian(variables);
 				return;
@@ -377,7 +309,7 @@ public class DFSSearch
 		ArrayList<Integer> costs= new ArrayList<Integer>();
 		for (int i = variables.length-1; i >=0 ; i--) 
 		{
-			TimedOutSearchStats.numberOfDomains++;
+			TimedOutSearchStats.countDomain(tmp.size());
 			boolean search=true;
 			if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
 			{
@@ -389,8 +321,8 @@ public class DFSSearch
 					if(Settings.PRINT)
 						System.out.println("$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$it has automorphisms");
 					
-					variables[i].setList((HashMap<Integer, myNode>) variables[preIndex].getList().clone());
-					result[i].setList((HashMap<Integer, myNode>) result[preIndex].getList().clone());
+					variables[i].setList(new NodeSet(variables[preIndex].getList()));
+					result[i].setList(new NodeSet(result[preIndex].getList()));
 				}
 			}
 			if(search==true)
@@ -409,16 +341,17 @@ public class DFSSearch
 			int index=-1;
 			index = sOrder.getNext();
 			Variable firstVB = variables[index];
-			HashMap<Integer,myNode> firstList= firstVB.getList();
+			NodeSet firstList= firstVB.getList();
 			AssignmentInstance instance = new AssignmentInstance(variables.length);
-			if(tmp.size()>TimedOutSearchStats.maximum)
-				TimedOutSearchStats.maximum = tmp.size();
 			tmp.clear();
-			for (Iterator<myNode> iterator = firstList.values().iterator(); iterator.hasNext();)
+			if(Settings.searchThreads>1 && Settings.isApproximate==false)
+				searchCandidatesInParallel(index, tmp, atm, autos);
+			else
+			for (Iterator<myNode> iterator = firstList.iterator(); iterator.hasNext();)
 			{
 				myNode firstNode= iterator.next();
 				//if already marked dont search it
-				if(result[index].getList().containsKey(firstNode.getID()))
+				if(result[index].getList().contains(firstNode.getID()))
 					{
 					if(Settings.PRINT)
 						System.out.println("ALready searched before !!");
@@ -430,8 +363,7 @@ public class DFSSearch
 					System.out.println(instance);
 				
 				
-		        timer = new Timer(true);
-		        timer.schedule(new StopTask(), 5*1000);
+		        budget.start();
 		        
 		        int value=-1;
 		        
@@ -450,7 +382,11 @@ public class DFSSearch
 	        		finalWeight=finalWeight.multiply(new BigInteger((variables.length*2)+""));
 	        		finalWeight=finalWeight.add(new BigDecimal(Settings.approxConstant).toBigInteger());
 	        	}
-	        	value=searchExistances(instance);//TODO
+	        	if(completeParentWitness(instance, index, firstNode))
+	        		value=-1;
+	        	else
+	        		value=searchExistances(instance);//TODO
+	        	TimedOutSearchStats.countSearch(value==-3);
 		        
 		        //reset number of iterations!!
 		        numberOfIterations=new BigInteger("0");
@@ -458,85 +394,25 @@ public class DFSSearch
 				if(value==-3)
 				{
 					tmp.add(firstNode);
-					TimedOutSearchStats.totalNumber++;
 
 					if(Settings.PRINT)
 						System.out.println("passed the time threshold!!");
-					isStopped=false;
 				}
-				timer.cancel();
 				
 				if(value==-2) //not Found!!!
 				{
 					//remove element !!
 					iterator.remove();
-					if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
-					{
-						HashMap<Integer, myNode> list= autos[firstVB.getID()].getList();
-						for (Iterator<Integer>  iterator2= list.keySet().iterator(); iterator2.hasNext();) 
-						{
-							int nodeIndex= iterator2.next();
-							HashSet<Integer> nonCan=nonCandidates.get(nodeIndex);
-							if(nonCan==null)
-							{
-								nonCan= new HashSet<Integer>();
-								nonCan.add(firstNode.getID());
-								nonCandidates.put(nodeIndex, nonCan);
-							}
-							else
-							{
-								if(!nonCan.contains(firstNode.getID()))
-									nonCan.add(firstNode.getID());
-							}
-							
-						}
-					}
-					else
-					{
-						HashSet<Integer> nonCan=nonCandidates.get(firstVB.getID());
-						if(nonCan==null)
-						{
-							nonCan= new HashSet<Integer>();
-							nonCan.add(firstNode.getID());
-							nonCandidates.put(firstVB.getID(), nonCan);
-						}
-						else
-						{
-							if(!nonCan.contains(firstNode.getID()))
-								nonCan.add(firstNode.getID());
-						}
-					}
+					addNonCandidate(firstVB.getID(), firstNode, atm, autos);
 					if(Settings.PRINT)
 						System.out.println("ERRRRRRRRRRRRRRRRRRR........................................Not Found: ");
 				}
 				if(value==-1)
 				{
 					//instance Found
-					for (int j = 0; j < variables.length; j++) 
-					{
-						myNode assignedNode=instance.getAssignment(j);						
-						if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
-						{
-								HashMap<Integer, myNode> list= autos[j].getList();
-								for (Iterator<Integer>  iterator2= list.keySet().iterator(); iterator2.hasNext();) 
-								{
-									int nodeIndex= iterator2.next();
-									if(!result[nodeIndex].getList().containsKey(assignedNode.getID()))
-									{
-									result[nodeIndex].getList().put(assignedNode.getID(), assignedNode);
-									}
-								}
-						}
-						else
-						{
-							if(!result[j].getList().containsKey(assignedNode.getID()))
-							{
-								result[j].getList().put(assignedNode.getID(), assignedNode);
-							}
-						}
-					}
+					addToResult(instance, atm, autos);
 					//check if the size of the list has passed already the minFreqThreshold!!
-					if(result[index].getList().size()>=minFreqThreshold)
+					if(!Settings.exactSupport && result[index].getList().size()>=minFreqThreshold)
 						break;
 				}
 				else if(value>=0)
@@ -548,7 +424,7 @@ public class DFSSearch
 			
 			//Timedout search
 			if(Settings.isApproximate==false)	
-			if(result[index].getList().size()<minFreqThreshold)
+			if(Settings.exactSupport || result[index].getList().size()<minFreqThreshold)
 			{
 				System.out.println("into TMP Part 1");
 				//fast check 
@@ -598,10 +474,10 @@ public class DFSSearch
 									
 									Query qry = new Query((HPListGraph<Integer, Double>)listGraph);
 									SPpruner sp = new SPpruner();
-									ArrayList<HashMap<Integer,myNode>> candidatesByNodeID = new ArrayList<HashMap<Integer,myNode>> ();
+									ArrayList<NodeSet> candidatesByNodeID = new ArrayList<NodeSet> ();
 									for (int l = 0; l < listGraph.getNodeCount(); l++) 
 									{
-										candidatesByNodeID.add((HashMap<Integer, myNode>) variables[graphMappings.get(l)].getList().clone());
+										candidatesByNodeID.add(new NodeSet(variables[graphMappings.get(l)].getList()));
 									}
 									sp.getPrunedLists(candidatesByNodeID, qry);
 									DFSSearch df = new DFSSearch(sp,qry,-1);
@@ -644,48 +520,16 @@ public class DFSSearch
 							System.out.println(instance);
 						//TODO
 						int value;
-						value=searchExistances(instance);
+						budget.startUnlimited();
+						if(completeParentWitness(instance, index, firstNode))
+							value=-1;
+						else
+							value=searchExistances(instance);
 						
 						if(value==-2)
 						{
 							firstList.remove(firstNode.getID());
-							
-							if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
-							{
-								HashMap<Integer, myNode> list= autos[firstVB.getID()].getList();
-								for (Iterator<Integer>  iterator2= list.keySet().iterator(); iterator2.hasNext();) 
-								{
-									int nodeIndex= iterator2.next();
-									HashSet<Integer> nonCan=nonCandidates.get(nodeIndex);
-									if(nonCan==null)
-									{
-										nonCan= new HashSet<Integer>();
-										nonCan.add(firstNode.getID());
-										nonCandidates.put(nodeIndex, nonCan);
-									}
-									else
-									{
-										if(!nonCan.contains(firstNode.getID()))
-											nonCan.add(firstNode.getID());
-									}
-									
-								}
-							}
-							else
-							{							
-								HashSet<Integer> nonCan=nonCandidates.get(firstVB.getID());
-								if(nonCan==null)
-								{
-									nonCan= new HashSet<Integer>();
-									nonCan.add(firstNode.getID());
-									nonCandidates.put(firstVB.getID(), nonCan);
-								}
-								else
-								{
-									if(!nonCan.contains(firstNode.getID()))
-										nonCan.add(firstNode.getID());
-								}
-							}
+							addNonCandidate(firstVB.getID(), firstNode, atm, autos);
 							if(Settings.PRINT)
 									System.out.println("ERRRRRRRRRRRRRRRRRRR........................................Not Found: ");
 							
@@ -694,31 +538,9 @@ public class DFSSearch
 						{
 							System.out.println("Found...");
 							//instance Found
-							for (int k = 0; k < variables.length; k++) 
-							{
-								myNode assignedNode=instance.getAssignment(k);
-								if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
-								{
-										HashMap<Integer, myNode> list= autos[k].getList();
-										for (Iterator<Integer>  iterator2= list.keySet().iterator(); iterator2.hasNext();) 
-										{
-											int nodeIndex= iterator2.next();
-											if(!result[nodeIndex].getList().containsKey(assignedNode.getID()))
-											{
-											result[nodeIndex].getList().put(assignedNode.getID(), assignedNode);
-											}
-										}
-								}
-								else
-								{
-									if(!result[k].getList().containsKey(assignedNode.getID()))
-									{
-										result[k].getList().put(assignedNode.getID(), assignedNode);
-									}
-								}
-							}
+							addToResult(instance, atm, autos);
 							//check if the size of the list has passed already the minFreqThreshold!!
-							if(result[index].getList().size()>=minFreqThreshold)
+							if(!Settings.exactSupport && result[index].getList().size()>=minFreqThreshold)
 								break;
 						}
 						instance.clear();
@@ -740,6 +562,356 @@ public class DFSSearch
 	}
 	
 	
+	private void addToResult(AssignmentInstance instance, Automorphism<Integer, Double> atm, Variable[] autos)
+	{
+		if(witnesses!=null)
+			witnesses.add(instance);
+		for (int j = 0; j < variables.length; j++) 
+		{
+			myNode assignedNode=instance.getAssignment(j);						
+			if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
+			{
+					NodeSet list= autos[j].getList();
+					for (Iterator<myNode>  iterator2= list.iterator(); iterator2.hasNext();) 
+					{
+						int nodeIndex= iterator2.next().getID();
+						result[nodeIndex].getList().add(assignedNode);
+					}
+			}
+			else
+			{
+				result[j].getList().add(assignedNode);
+			}
+		}
+	}
+	
+	private void addNonCandidate(int variableID, myNode node, Automorphism<Integer, Double> atm, Variable[] autos)
+	{
+		if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
+		{
+			NodeSet list= autos[variableID].getList();
+			for (Iterator<myNode>  iterator2= list.iterator(); iterator2.hasNext();) 
+			{
+				int nodeIndex= iterator2.next().getID();
+				HashSet<Integer> nonCan=nonCandidates.get(nodeIndex);
+				if(nonCan==null)
+				{
+					nonCan= new HashSet<Integer>();
+					nonCan.add(node.getID());
+					nonCandidates.put(nodeIndex, nonCan);
+				}
+				else
+				{
+					if(!nonCan.contains(node.getID()))
+						nonCan.add(node.getID());
+				}
+				
+			}
+		}
+		else
+		{
+			HashSet<Integer> nonCan=nonCandidates.get(variableID);
+			if(nonCan==null)
+			{
+				nonCan= new HashSet<Integer>();
+				nonCan.add(node.getID());
+				nonCandidates.put(variableID, nonCan);
+			}
+			else
+			{
+				if(!nonCan.contains(node.getID()))
+					nonCan.add(node.getID());
+			}
+		}
+	}
+	
+	/**
+	 * ALE - tries to build an embedding with this candidate from the embeddings of the parent pattern: those that map 
+	 * the variable to the candidate, or, for the new variable, those that map one of its neighbours to a neighbour of it.
+	 * @return true if the instance is now complete, false if it is as it was (only the candidate assigned)
+	 */
+	private boolean completeParentWitness(AssignmentInstance instance, int index, myNode firstNode)
+	{
+		if(parentWitnesses==null)
+			return false;
+		int known= parentWitnesses.getNumberOfVariables();
+		int tries= 0;
+		if(index<known)
+		{
+			ArrayList<int[]> list= parentWitnesses.get(index, firstNode.getID());
+			if(list==null)
+				return false;
+			for (int k = 0; k < list.size(); k++) 
+			{
+				if(completeWitness(instance, list.get(k), index))
+					return true;
+			}
+			return false;
+		}
+		Variable firstVB= variables[index];
+		for (int d = 0; d < 2; d++) 
+		{
+			ArrayList<MyPair<Integer, Double>> constraints= d==0 ? firstVB.getDistanceConstrainedWith() : firstVB.getDistanceConstrainedBy();
+			for (int i = 0; i < constraints.size(); i++) 
+			{
+				int neighborIndex= constraints.get(i).getA();
+				if(neighborIndex>=known)
+					continue;
+				int label= variables[neighborIndex].getLabel();
+				IntRange neighbors= d==0 ? firstNode.getRechableWithNodeIDs(label, constraints.get(i).getB()) : firstNode.getRechableByNodeIDs(label, constraints.get(i).getB());
+				for (int k = 0; k < neighbors.size(); k++) 
+				{
+					ArrayList<int[]> list= parentWitnesses.get(neighborIndex, neighbors.get(k));
+					if(list==null)
+						continue;
+					for (int l = 0; l < list.size(); l++) 
+					{
+						if(completeWitness(instance, list.get(l), index))
+							return true;
+						if(++tries>=MAX_WITNESS_TRIES)
+							return false;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	//ALE - assigns the parent embedding, checks every constraint between the assigned variables and assigns the new ones
+	private boolean completeWitness(AssignmentInstance instance, int[] witness, int index)
+	{
+		for (int v = 0; v < witness.length; v++) 
+		{
+			if(v==index)
+				continue;
+			myNode node= variables[v].getList().get(witness[v]);
+			if(node==null)
+				return undoWitness(instance, index);
+			instance.assign(v, node);
+		}
+		if(!AssignmentInstance.ensureIDValidty(instance))
+			return undoWitness(instance, index);
+		for (int v = 0; v < variables.length; v++) 
+		{
+			myNode node= instance.getAssignment(v);
+			if(node==null)
+				continue;
+			ArrayList<MyPair<Integer, Double>> constraints= variables[v].getDistanceConstrainedWith();
+			for (int i = 0; i < constraints.size(); i++) 
+			{
+				myNode other= instance.getAssignment(constraints.get(i).getA());
+				if(other!=null && !node.getRechableWithNodeIDs(other.getLabel(), constraints.get(i).getB()).contains(other.getID()))
+					return undoWitness(instance, index);
+			}
+		}
+		for (int v = 0; v < variables.length; v++) 
+		{
+			if(instance.getAssignment(v)!=null)
+				continue;
+			Variable currentVB= variables[v];
+			ArrayList<IntRange> candidates= new ArrayList<IntRange>();
+			ArrayList<MyPair<Integer, Double>> constraints= currentVB.getDistanceConstrainedWith();
+			for (int i = 0; i < constraints.size(); i++) 
+			{
+				myNode other= instance.getAssignment(constraints.get(i).getA());
+				if(other!=null)
+					candidates.add(other.getRechableByNodeIDs(currentVB.getLabel(), constraints.get(i).getB()));
+			}
+			constraints= currentVB.getDistanceConstrainedBy();
+			for (int i = 0; i < constraints.size(); i++) 
+			{
+				myNode other= instance.getAssignment(constraints.get(i).getA());
+				if(other!=null)
+					candidates.add(other.getRechableWithNodeIDs(currentVB.getLabel(), constraints.get(i).getB()));
+			}
+			IntRange finalCandidates= Util.getIntersection(candidates);
+			boolean isAssigned=false;
+			for (int i = 0; i < finalCandidates.size() && !isAssigned; i++) 
+			{
+				myNode candidateNode= currentVB.getList().get(finalCandidates.get(i));
+				if(candidateNode==null)
+					continue;
+				instance.assign(v, candidateNode);
+				if(AssignmentInstance.ensureIDValidty(instance))
+					isAssigned=true;
+				else
+					instance.deAssign(v);
+			}
+			if(!isAssigned)
+				return undoWitness(instance, index);
+		}
+		return true;
+	}
+	
+	private boolean undoWitness(AssignmentInstance instance, int index)
+	{
+		for (int v = 0; v < variables.length; v++) 
+		{
+			if(v!=index && instance.getAssignment(v)!=null)
+				instance.deAssign(v);
+		}
+		return false;
+	}
+	
+	private static synchronized ForkJoinPool getSearchPool()
+	{
+		if(searchPool==null || searchPool.getParallelism()!=Settings.searchThreads)
+		{
+			//the tasks already given to the old pool still run
+			if(searchPool!=null)
+				searchPool.shutdown();
+			searchPool= new ForkJoinPool(Settings.searchThreads);
+		}
+		return searchPool;
+	}
+	
+	/**
+	 * ALE - parallel version of the candidates loop of searchExistances(): the candidates of variables[index] are validated concurrently
+	 * by workers with their own assignment, search order and budget. Workers only record the outcome of each candidate 
+	 * and share the nodes already covered by found instances, so all of them stop once minFreqThreshold is reached. 
+	 * The outcomes are then applied to the domain, result and nonCandidates in the candidates order, as the sequential loop does.
+	 */
+	private void searchCandidatesInParallel(int index, ArrayList<myNode> tmp, Automorphism<Integer, Double> atm, Variable[] autos)
+	{
+		Variable firstVB = variables[index];
+		NodeSet firstList= firstVB.getList();
+		ArrayList<myNode> candidates= new ArrayList<myNode>();
+		for (Iterator<myNode> iterator = firstList.iterator(); iterator.hasNext();)
+		{
+			myNode firstNode= iterator.next();
+			if(!result[index].getList().contains(firstNode.getID()))
+				candidates.add(firstNode);
+		}
+		if(candidates.size()==0)
+			return;
+		
+		CandidatesValidation validation= new CandidatesValidation(index, candidates.toArray(new myNode[candidates.size()]), atm, autos);
+		int leafSize=Math.max(1, candidates.size()/(Settings.searchThreads*8));
+		getSearchPool().invoke(new CandidatesTask(validation, 0, candidates.size(), leafSize));
+		
+		for (int k = 0; k < validation.candidates.length; k++) 
+		{
+			myNode firstNode= validation.candidates[k];
+			int value= validation.outcomes[k];
+			if(value==CandidatesValidation.NOT_SEARCHED)
+				continue;
+			TimedOutSearchStats.countSearch(value==-3);
+			if(value==-3)
+			{
+				tmp.add(firstNode);
+			}
+			else if(value==-2)
+			{
+				firstList.remove(firstNode.getID());
+				addNonCandidate(firstVB.getID(), firstNode, atm, autos);
+			}
+			else if(value==-1)
+				addToResult(validation.found[k], atm, autos);
+		}
+	}
+	
+	private class CandidatesValidation
+	{
+		static final int NOT_SEARCHED=-4;
+		
+		final int index;
+		final myNode[] candidates;
+		final int[] outcomes;
+		final AssignmentInstance[] found;
+		final Automorphism<Integer, Double> atm;
+		final Variable[] autos;
+		//nodes that the found instances will add to result[index]
+		final Set<Integer> covered= ConcurrentHashMap.newKeySet();
+		volatile boolean isDone=false;
+		
+		CandidatesValidation(int index, myNode[] candidates, Automorphism<Integer, Double> atm, Variable[] autos)
+		{
+			this.index=index;
+			this.candidates=candidates;
+			this.atm=atm;
+			this.autos=autos;
+			outcomes= new int[candidates.length];
+			Arrays.fill(outcomes, NOT_SEARCHED);
+			found= new AssignmentInstance[candidates.length];
+		}
+		
+		void cover(AssignmentInstance instance)
+		{
+			for (int j = 0; j < variables.length; j++) 
+			{
+				if(Settings.isAutomorphismOn && atm.hasAutomorphisms())
+				{
+					if(!autos[j].getList().contains(index))
+						continue;
+				}
+				else if(j!=index)
+					continue;
+				int ID=instance.getAssignment(j).getID();
+				if(!result[index].getList().contains(ID))
+					covered.add(ID);
+			}
+			if(!Settings.exactSupport && result[index].getList().size()+covered.size()>=minFreqThreshold)
+				isDone=true;
+		}
+	}
+	
+	private class CandidatesTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final CandidatesValidation validation;
+		private final int from;
+		private final int to;
+		private final int leafSize;
+		
+		CandidatesTask(CandidatesValidation validation, int from, int to, int leafSize)
+		{
+			this.validation=validation;
+			this.from=from;
+			this.to=to;
+			this.leafSize=leafSize;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(to-from>leafSize)
+			{
+				int middle=(from+to)>>>1;
+				invokeAll(new CandidatesTask(validation, from, middle, leafSize), new CandidatesTask(validation, middle, to, leafSize));
+				return;
+			}
+			DFSSearch worker= new DFSSearch(DFSSearch.this);
+			int firstID=variables[validation.index].getID();
+			AssignmentInstance instance = new AssignmentInstance(variables.length);
+			for (int k = from; k < to; k++) 
+			{
+				if(validation.isDone)
+					return;
+				myNode firstNode= validation.candidates[k];
+				if(validation.covered.contains(firstNode.getID()))
+					continue;
+				worker.sOrder.reset();
+				instance.assign(firstID, firstNode);
+				worker.budget.start();
+				int value;
+				if(worker.completeParentWitness(instance, validation.index, firstNode))
+					value=-1;
+				else
+					value=worker.searchExistances(instance);
+				validation.outcomes[k]=value;
+				if(value==-1)
+				{
+					validation.found[k]=instance;
+					validation.cover(instance);
+					instance = new AssignmentInstance(variables.length);
+				}
+				else
+					instance.clear();
+			}
+		}
+	}
+	
 	private void printVariablesSize(Variable[] vars)
 	{
 		for (int i = 0; i < vars.length; i++) 
@@ -772,11 +944,11 @@ public class DFSSearch
 	{
 		sOrder.reset();
 		setVariableVisitingOrder(orderINdex);
-		timer = new Timer(true);
-        timer.schedule(new StopTask(), 7*1000);
+		TimeBudget candidateBudget= budget;
+		budget= new TimeBudget(TimeBudget.getAdaptiveMillis(Settings.particularSearchTimeLimit));
+		budget.start();
 		int value=searchExistances(instance);
-		isStopped=false;
-		timer.cancel();
+		budget=candidateBudget;
 		if(value==-2) return false;
 		else return true;
 		
@@ -792,7 +964,58 @@ public class DFSSearch
 		return -1;
 	}
 	
+	//ALE - frame results of the iterative search, besides the values of searchExistances
+	private static final int READY = Integer.MIN_VALUE; //the frame has candidates to try
+	private static final int PUSHED = Integer.MIN_VALUE+1; //a candidate is assigned, the next variable is entered
+	
+	/**
+	 * ALE - iterative depth first search for an assignment of the variables after the ones already assigned, in the 
+	 * order of sOrder: -1 found (the instance holds it), -2 not found, -3 out of time (or iterations), or the 
+	 * index of the variable to jump back to. Depth d of the SearchFrames is the variable the recursive version 
+	 * handled in its d-th nested call, and every step (budget checks, stepBack, deAssign, counted iterations, backjumps) 
+	 * is done as it did.
+	 */
 	private int searchExistances(AssignmentInstance instance)
+	{
+		SearchFrames frames= SearchFrames.acquire(variables);
+		try
+		{
+			for (int i = 0; i < instance.getAssignmentSize(); i++) 
+			{
+				myNode node= instance.getAssignment(i);
+				if(node!=null)
+					frames.stamp(node.getID());
+			}
+			int depth=0;
+			int value=enterFrame(instance, frames, depth);
+			while(true)
+			{
+				if(value==READY)
+					value=nextCandidate(instance, frames, depth);
+				if(value==PUSHED)
+				{
+					depth++;
+					value=enterFrame(instance, frames, depth);
+					continue;
+				}
+				//the frame of depth returned value
+				if(value==-1 || value==-3 || depth==0)
+					return value;
+				depth--;
+				if(value>=0 && variables[frames.variable[depth]].getID()!=value)
+					value=leaveFrame(instance, frames, depth, value);
+				else
+					value=READY;
+			}
+		}
+		finally
+		{
+			frames.release();
+		}
+	}
+	
+	//the start of a call of the recursive search: the next variable and its candidates
+	private int enterFrame(AssignmentInstance instance, SearchFrames frames, int depth)
 	{
 		if(Settings.isApproximate)
 		{
@@ -803,143 +1026,107 @@ public class DFSSearch
 		}
 		else
 		{
-			if(isStopped)
+			if(budget.isExhausted())
 			{
 				return -3;
 			}
 		}
 		
 		int index = sOrder.getNext();
-
-		if(index!=-1)
+		if(index==-1)
+			return -1; //return True
+		
+		frames.enter(depth, index);
+		Variable currentVB=variables[index];
+		int count=0;
+		//check Validty with constraintVariables
+		ArrayList<MyPair<Integer, Double>> constrainingVariables=currentVB.getDistanceConstrainedWith();
+		for (int i = 0; i < constrainingVariables.size(); i++) 
 		{
-			Variable currentVB=variables[index];
-			ArrayList<MyPair<Integer, Double>> constrainingVariables=currentVB.getDistanceConstrainedWith();
-			
-			ArrayList<ArrayList<MyPair<Integer, Double>>> candidates= new ArrayList<ArrayList<MyPair<Integer, Double>>>();
-			ArrayList<VariableCandidates> variableCandidates= new ArrayList<VariableCandidates>();
-			
-			//check Validty with constraintVariables
-			for (int i = 0; i < constrainingVariables.size(); i++) 
-			{
-				Variable cnVariable=variables[constrainingVariables.get(i).getA()];
-				Double edgeLabel = constrainingVariables.get(i).getB();
-				int cnVariableIndex=cnVariable.getID();
-				myNode cnVariableInstance = instance.getAssignment(cnVariableIndex);
-				if(cnVariableInstance!=null)
-				{
-					candidates.add(cnVariableInstance.getRechableByNodeIDs(currentVB.getLabel(), edgeLabel));
-					variableCandidates.add(new VariableCandidates(cnVariableIndex, cnVariableInstance.getRechableByNodeIDs(currentVB.getLabel(), edgeLabel)));
-				}
-			}
-			
-			ArrayList<MyPair<Integer, Double>> constrainingBYVariables=currentVB.getDistanceConstrainedBy();
-			for (int i = 0; i < constrainingBYVariables.size(); i++) 
-			{
-				Variable cnVariable=variables[constrainingBYVariables.get(i).getA()];
-				Double edgeLabel = constrainingBYVariables.get(i).getB();
-				int cnVariableIndex=cnVariable.getID();
-				myNode cnVariableInstance = instance.getAssignment(cnVariableIndex);
-				if(cnVariableInstance!=null)
-				{
-					candidates.add(cnVariableInstance.getRechableWithNodeIDs(currentVB.getLabel(), edgeLabel));
-					variableCandidates.add(new VariableCandidates(cnVariableIndex, cnVariableInstance.getRechableWithNodeIDs(currentVB.getLabel(), edgeLabel)));
-				}
-			}
-			
-			
-			
-			ArrayList<MyPair<Integer, Double>> finalCandidates= Util.getIntersection(candidates);
-			
-			if(finalCandidates.size()==0)
-			{
-				//learn the new constraints !!!
-				ArrayList<Point> constrainedVariableIndices=Util.getZerosIntersectionIndices(variableCandidates);
-				if(constrainedVariableIndices.size()!=0)
-				{
-					Point p =constrainedVariableIndices.get(0);
-					int minValue=sOrder.getSecondOrderValue(p.x, p.y);
-					for (int i = 1; i < constrainedVariableIndices.size(); i++) 
-					{
-						p = constrainedVariableIndices.get(i);
-						int value=sOrder.getSecondOrderValue(p.x, p.y);
-						if(minValue>value)
-							minValue=value;
-					}
-						int jumpToIndex=sOrder.getVariableIndex(minValue);
-						sOrder.stepBack();
-						if(Settings.isApproximate)
-							numberOfIterations=numberOfIterations.add(new BigInteger("1"));
-						
-						instance.deAssign(currentVB.getID());
-						return jumpToIndex;
-				}
-				
-			}
-
-						
-			int hasResult=0;
-			
-			for (int i = 0; i < finalCandidates.size(); i++) 
+			int cnVariableIndex=variables[constrainingVariables.get(i).getA()].getID();
+			myNode cnVariableInstance = instance.getAssignment(cnVariableIndex);
+			if(cnVariableInstance!=null)
+				frames.setRange(count++, cnVariableIndex, cnVariableInstance, CSRAdjacency.IN, currentVB.getLabel(), constrainingVariables.get(i).getB());
+		}
+		ArrayList<MyPair<Integer, Double>> constrainingBYVariables=currentVB.getDistanceConstrainedBy();
+		for (int i = 0; i < constrainingBYVariables.size(); i++) 
+		{
+			int cnVariableIndex=variables[constrainingBYVariables.get(i).getA()].getID();
+			myNode cnVariableInstance = instance.getAssignment(cnVariableIndex);
+			if(cnVariableInstance!=null)
+				frames.setRange(count++, cnVariableIndex, cnVariableInstance, CSRAdjacency.OUT, currentVB.getLabel(), constrainingBYVariables.get(i).getB());
+		}
+		
+		if(frames.intersect(depth, count)==0)
+		{
+			//learn the new constraints !!!
+			int minValue=frames.getConflictOrderValue(count, sOrder);
+			if(minValue!=-1)
 			{
-				int candidateIndex=finalCandidates.get(i).getA();
-				myNode candidateNode = currentVB.getList().get(candidateIndex);
-								
-				if(candidateNode!=null)
-				{
-					instance.assign(currentVB.getID(), candidateNode);
-					
-					//check identity Validity
-					if(AssignmentInstance.ensureIDValidty(instance))
-					{
-						hasResult = searchExistances(instance);
-						if(hasResult==-3)
-							return -3;
-						if(hasResult==-1)
-							return -1;
-						else if(hasResult>=0)
-						{
-							if (currentVB.getID()!=hasResult)
-							{
-								sOrder.stepBack();
-								if(Settings.isApproximate)
-									numberOfIterations=numberOfIterations.add(new BigInteger("1"));
-								instance.deAssign(currentVB.getID());
-								return hasResult;
-							}
-						}
-						else
-							;
-					}
-					else
-					{
-						if(Settings.isApproximate)
-							numberOfIterations=numberOfIterations.add(new BigInteger("1"));
-						instance.deAssign(currentVB.getID());
-						
-					}	
-				}
-				//End ID Validity
+				int jumpToIndex=sOrder.getVariableIndex(minValue);
+				sOrder.stepBack();
+				countIteration();
+				instance.deAssign(currentVB.getID());
+				return jumpToIndex;
 			}
-			//after finishing... step back to before state
-			sOrder.stepBack();
-			if(Settings.isApproximate)
-				numberOfIterations=numberOfIterations.add(new BigInteger("1"));
-			instance.deAssign(currentVB.getID());
-			
 		}
-		else// index ==-1 means that I reached the point where the assignment is legal
+		return READY;
+	}
+	
+	//assigns the next candidate of the frame that is not used by another variable, or leaves the frame when there is none
+	private int nextCandidate(AssignmentInstance instance, SearchFrames frames, int depth)
+	{
+		Variable currentVB=variables[frames.variable[depth]];
+		int[] candidates=frames.source[depth];
+		while(frames.position[depth]<frames.to[depth])
 		{
-			return -1; //return True
+			int candidateIndex=candidates[frames.position[depth]++];
+			NodeSet list=currentVB.getList();
+			if(!list.contains(candidateIndex))
+				continue;
+			frames.unassign(depth);
+			instance.assign(currentVB.getID(), list.getUniverse().get(candidateIndex));
+			//check identity Validity
+			if(frames.isStamped(candidateIndex))
+			{
+				countIteration();
+				instance.deAssign(currentVB.getID());
+				continue;
+			}
+			frames.assign(depth, candidateIndex);
+			return PUSHED;
 		}
-		return -2; //return False
+		//after finishing... step back to before state
+		return leaveFrame(instance, frames, depth, -2);
+	}
+	
+	private int leaveFrame(AssignmentInstance instance, SearchFrames frames, int depth, int value)
+	{
+		frames.unassign(depth);
+		sOrder.stepBack();
+		countIteration();
+		instance.deAssign(variables[frames.variable[depth]].getID());
+		return value;
+	}
+	
+	private void countIteration()
+	{
+		if(Settings.isApproximate)
+			numberOfIterations=numberOfIterations.add(BigInteger.ONE);
 	}
 	
 	
 	
+
 	public void stopSearching()
 	{
-		isStopped=true;
+		budget.exhaust();
+	}
+	
+	//ALE - overrides the adaptive time budget for the candidates of this pattern
+	public void setTimeBudget(long millis)
+	{
+		budget.setMillis(millis);
 	}
 	
 	
@@ -953,42 +1140,19 @@ public class DFSSearch
 	private void resetVariableVisitingOrder()
 	{
 		sOrder= new SearchOrder(variables.length);
-		visitedVariables.clear();
 	}
 	
 	private void setVariableVisitingOrder(int begin)
 	{
-		sOrder.addNext(begin);
-		visitedVariables.add(begin);
-		searchOrder(variables[begin]);
+		ordering.order(variables, begin, sOrder);
 	}
 	
-	private void searchOrder(Variable vb)
+	/**
+	 * ALE - the order of the variables for the searches of this pattern (VariableOrderings.getDefault() if not set)
+	 */
+	public void setVariableOrdering(VariableOrdering ordering)
 	{
-		HashMap<Integer, myNode> list = vb.getList();
-		ArrayList<MyPair<Integer, Double>> constrains= vb.getDistanceConstrainedWith();
-		for (int i = 0; i < constrains.size(); i++) 
-		{
-			Variable currentVB= variables[constrains.get(i).getA()];
-			if(!visitedVariables.contains(currentVB.getID()))
-			{
-				visitedVariables.add(currentVB.getID());
-				sOrder.addNext(currentVB.getID());
-				searchOrder(currentVB);
-			}
-		}
-		ArrayList<MyPair<Integer, Double>> constrainsBY= vb.getDistanceConstrainedBy();
-		for (int i = 0; i < constrainsBY.size(); i++) 
-		{
-			Variable currentVB= variables[constrainsBY.get(i).getA()];
-			if(!visitedVariables.contains(currentVB.getID()))
-			{
-				visitedVariables.add(currentVB.getID());
-				sOrder.addNext(currentVB.getID());
-				searchOrder(currentVB);
-			}
-		}
-		
+		this.ordering = ordering;
 	}
 	
 	public int getFrequencyOfPattern()
@@ -1006,6 +1170,11 @@ public class DFSSearch
 	public Variable[] getResultVariables() {
 		return result;
 	}
+	
+	//ALE the domains after the search: every node that was not proven invalid (a superset of the result)
+	public Variable[] getDomainVariables() {
+		return variables;
+	}
 
 
 	public void printListFrequencies()
@@ -1013,7 +1182,6 @@ public class DFSSearch
 		for (int i = 0; i < result.length; i++) 
 		{
 			System.out.println("Result["+result[i].getID()+"] (Label:"+result[i].getLabel()+")=  "+result[i].getListSize());
-			HashMap<Integer, myNode> list = result[i].getList();
 		}
 	}
 	
@@ -1069,7 +1237,7 @@ public class DFSSearch
 		for (int i = 0; i < cloneDomian.length; i++) 
 		{
 			Variable currentDomain=domain[i];
-			cloneDomian[i]=new Variable(currentDomain.getID(), currentDomain.getLabel(), (HashMap<Integer, myNode>) currentDomain.getList().clone(), null,null);
+			cloneDomian[i]=new Variable(currentDomain.getID(), currentDomain.getLabel(), new NodeSet(currentDomain.getList()), null,null);
 		}
 		
 		//add constraints !!
@@ -1086,12 +1254,12 @@ public class DFSSearch
 		Variable[] result=cloneDomian(currentDomain);
 		
 		//assert!!
-		if(!result[index].getList().containsKey(node.getID()))
+		if(!result[index].getList().contains(node.getID()))
 			;
 		
 		//assign this node !!
 		result[index].getList().clear();
-		result[index].getList().put(node.getID(), node);
+		result[index].getList().add(node);
 		{
 		HashSet<Integer> asserter= new HashSet<Integer>();
 		boolean collision=false;
@@ -1100,7 +1268,7 @@ public class DFSSearch
 		{
 			if(result[i].getList().size()==1)
 			{
-				int nodeID=result[i].getList().keySet().iterator().next();
+				int nodeID=result[i].getList().first();
 				if(asserter.contains(nodeID))
 				{
 					collision=true;
@@ -1135,14 +1303,14 @@ public class DFSSearch
 			if(!isAnyEmptyD_dash)
 			{
 				//iterate over them !!
-				for (Iterator<Entry<Integer, myNode>> iterator = currentVariable.getList().entrySet().iterator();iterator.hasNext();) 
+				for (Iterator<myNode> iterator = currentVariable.getList().iterator();iterator.hasNext();) 
 				{
-					Entry<Integer, myNode> nodeEntry = iterator.next();
-					Variable[] D_dash_dash=look_ahead(index, nodeEntry.getValue(), D_dash);
+					myNode node = iterator.next();
+					Variable[] D_dash_dash=look_ahead(index, node, D_dash);
 					if(D_dash_dash!=null && !isAnyEmpty(D_dash_dash))
 					{
 						X.remove((Integer)currentVariable.getID());
-						instance.assign(currentVariable.getID(), nodeEntry.getValue());
+						instance.assign(currentVariable.getID(), node);
 						int hasSoln=solve(X, D_dash_dash,instance);
 						if(hasSoln==-1)
 							return -1;
@@ -1173,45 +1341,41 @@ public class DFSSearch
 			Variable currentDomain=domain[i];
 			if(currentDomain.getList().size()==1)
 			{
-				myNode node=currentDomain.getList().values().iterator().next();
+				myNode node=currentDomain.getList().iterator().next();
 				
 				
 				ArrayList<MyPair<Integer, Double>> consBY =domain[i].getDistanceConstrainedBy();
-				HashMap<Integer, ArrayList<MyPair<Integer, Double>>> nodereachBy= node.getReachableByNodes(); //Label ~ NodeIDs
 				
 				for (int j = 0; j < consBY.size(); j++) 
 				{
 					int variableIndex = consBY.get(j).getA();
 					Variable vb = domain[variableIndex];
-					HashMap<Integer, myNode> vbList = vb.getList();
-					ArrayList<MyPair<Integer, Double>> candNodes= nodereachBy.get(vb.getLabel());
-					HashMap<Integer, myNode> newList = new HashMap<Integer, myNode>();
+					NodeSet vbList = vb.getList();
+					IntRange candNodes= node.getRechableByNodeIDs(vb.getLabel(), consBY.get(j).getB());
+					NodeSet newList = new NodeSet(vbList.getUniverse());
 					for (int k = 0; k < candNodes.size(); k++) 
 					{
-						int candID=candNodes.get(k).getA();
-						myNode candNode =vbList.get(candID);
-						if(candNode!=null)
-							newList.put(candNode.getID(),candNode);
+						int candID=candNodes.get(k);
+						if(vbList.contains(candID))
+							newList.add(candID);
 					}
 					domain[variableIndex].setList(newList);
 				}
 				
 				ArrayList<MyPair<Integer, Double>> consWith =domain[i].getDistanceConstrainedWith();
-				HashMap<Integer, ArrayList<MyPair<Integer, Double>>> nodereachWith= node.getReachableWithNodes(); //Label ~ NodeIDs
 				
 				for (int j = 0; j < consWith.size(); j++) 
 				{
 					int variableIndex = consWith.get(j).getA();
 					Variable vb = domain[variableIndex];
-					HashMap<Integer, myNode> vbList = vb.getList();
-					ArrayList<MyPair<Integer, Double>> candNodes= nodereachWith.get(vb.getLabel());
-					HashMap<Integer, myNode> newList = new HashMap<Integer, myNode>();
+					NodeSet vbList = vb.getList();
+					IntRange candNodes= node.getRechableWithNodeIDs(vb.getLabel(), consWith.get(j).getB());
+					NodeSet newList = new NodeSet(vbList.getUniverse());
 					for (int k = 0; k < candNodes.size(); k++) 
 					{
-						int candID=candNodes.get(k).getA();
-						myNode candNode =vbList.get(candID);
-						if(candNode!=null)
-							newList.put(candNode.getID(),candNode);
+						int candID=candNodes.get(k);
+						if(vbList.contains(candID))
+							newList.add(candID);
 					}
 					domain[variableIndex].setList(newList);
 				}
@@ -1230,7 +1394,7 @@ public class DFSSearch
 			Variable currentVB=variables[index];
 			ArrayList<MyPair<Integer, Double>> constrainingVariables=currentVB.getDistanceConstrainedWith();
 			
-			ArrayList<ArrayList<MyPair<Integer, Double>>> candidates= new ArrayList<ArrayList<MyPair<Integer, Double>>>();
+			ArrayList<IntRange> candidates= new ArrayList<IntRange>();
 			ArrayList<VariableCandidates> variableCandidates= new ArrayList<VariableCandidates>();
 			
 			//check Validty with constraintVariables
@@ -1263,13 +1427,13 @@ public class DFSSearch
 			
 			
 			
-			ArrayList<MyPair<Integer, Double>> finalCandidates= Util.getIntersection(candidates);						
+			IntRange finalCandidates= Util.getIntersection(candidates);						
 			int hasResult=0;
 			
 			//end check Validty with constraintVariables
 			for (int i = 0; i < finalCandidates.size(); i++) 
 			{
-				int candidateIndex=finalCandidates.get(i).getA();
+				int candidateIndex=finalCandidates.get(i);
 				myNode candidateNode = currentVB.getList().get(candidateIndex);
 				if(candidateNode!=null)
 				{
@@ -1299,8 +1463,7 @@ public class DFSSearch
 			for (int i = 0; i < instance.getAssignmentSize(); i++) 
 			{
 				myNode nodeInstance=instance.getAssignment(i);
-				if(!result[i].getList().containsKey(nodeInstance.getID()))
-					result[i].getList().put(nodeInstance.getID(), nodeInstance);
+				result[i].getList().add(nodeInstance);
 			}
 		}
 	}
@@ -1312,13 +1475,13 @@ public class DFSSearch
 		
 		index = sOrder.getNext();
 		Variable firstVB = variables[index];
-		HashMap<Integer,myNode> firstList= firstVB.getList();
+		NodeSet firstList= firstVB.getList();
 		
 		int tempCounter=0;
 		
 		AssignmentInstance instance = new AssignmentInstance(variables.length);
 		
-		for (Iterator<myNode> iterator = firstList.values().iterator(); iterator.hasNext();)
+		for (Iterator<myNode> iterator = firstList.iterator(); iterator.hasNext();)
 		{
 			myNode firstNode= iterator.next();
 			instance.assign(firstVB.getID(), firstNode);
@@ -1327,21 +1490,4 @@ public class DFSSearch
 		}
 	}
 
-	//insert vp into order according to their variable values length
-	private void insertInOrder(LinkedList<VariablePair> Q, VariablePair vp)
-	{
-		int i = 0;
-		Iterator itr = Q.iterator();
-	    while(itr.hasNext())
-	    {
-	    	VariablePair tempVP = (VariablePair)itr.next();
-	    	if(tempVP.getMinValuesLength()>vp.getMinValuesLength())
-			{
-				Q.add(i, vp);
-				return;
-			}
-	    	i++;
-	    }
-	    Q.add(i, vp);
-	}
 }
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package CSP;
+
+import java.util.HashMap;
+import java.util.List;
+
+import dataStructures.CSRAdjacency;
+import dataStructures.myNode;
+
+/**
+ * ALE - average fan-out of every edge signature (labelA, edgeLabel, labelB) of the graph: how many labelB neighbors a labelA node 
+ * has through such edges when it has any (and the other way around). Measured once from the adjacency, for the cost of the 
+ * variable orderings.
+ */
+public class FanoutModel 
+{
+	private static FanoutModel model; //of the last adjacency asked for
+	
+	private final CSRAdjacency adjacency;
+	private final HashMap<Long, int[]> counts= new HashMap<Long, int[]>(); //signature ~ {edges, sources, targets}
+	
+	private FanoutModel(List<myNode> nodes, CSRAdjacency adjacency)
+	{
+		this.adjacency=adjacency;
+		for (int i = 0; i < nodes.size(); i++) 
+		{
+			myNode node= nodes.get(i);
+			int id= node.getID();
+			for (int g = adjacency.getFirstGroup(CSRAdjacency.OUT, id); g < adjacency.getLastGroup(CSRAdjacency.OUT, id); g++) 
+			{
+				int[] count= getCounts(pack(node.getLabel(), adjacency.getGroupEdgeLabelIndex(CSRAdjacency.OUT, g), adjacency.getGroupLabel(CSRAdjacency.OUT, g)));
+				count[0]+= adjacency.getGroupEnd(CSRAdjacency.OUT, g)-adjacency.getGroupStart(CSRAdjacency.OUT, g);
+				count[1]++;
+			}
+			for (int g = adjacency.getFirstGroup(CSRAdjacency.IN, id); g < adjacency.getLastGroup(CSRAdjacency.IN, id); g++) 
+			{
+				int[] count= getCounts(pack(adjacency.getGroupLabel(CSRAdjacency.IN, g), adjacency.getGroupEdgeLabelIndex(CSRAdjacency.IN, g), node.getLabel()));
+				count[2]++;
+			}
+		}
+	}
+	
+	/**
+	 * @param nodes all the nodes of the graph (the universe of the domains)
+	 */
+	public static synchronized FanoutModel get(List<myNode> nodes)
+	{
+		CSRAdjacency adjacency= nodes.isEmpty() ? null : nodes.get(0).getAdjacency();
+		if(model==null || model.adjacency!=adjacency)
+			model= adjacency==null ? new FanoutModel() : new FanoutModel(nodes, adjacency);
+		return model;
+	}
+	
+	//for a graph without adjacency
+	private FanoutModel()
+	{
+		adjacency=null;
+	}
+	
+	private static long pack(int labelA, int edgeLabelIndex, int labelB)
+	{
+		return (((long)labelA)<<40) | (((long)edgeLabelIndex)<<24) | labelB;
+	}
+	
+	private int[] getCounts(long key)
+	{
+		int[] count= counts.get(key);
+		if(count==null)
+		{
+			count= new int[3];
+			counts.put(key, count);
+		}
+		return count;
+	}
+	
+	/**
+	 * average number of neighbors with label labelB that a node with label labelA has through edges with edgeLabel, 
+	 * outgoing edges (labelA -> labelB) or incoming ones (labelB -> labelA), among the nodes that have some. 0 if there are none.
+	 */
+	public double getFanout(int labelA, double edgeLabel, int labelB, boolean outgoing)
+	{
+		if(adjacency==null)
+			return 0;
+		int edgeLabelIndex= adjacency.getEdgeLabelIndex(edgeLabel);
+		if(edgeLabelIndex<0)
+			return 0;
+		int[] count= outgoing ? counts.get(pack(labelA, edgeLabelIndex, labelB)) : counts.get(pack(labelB, edgeLabelIndex, labelA));
+		if(count==null)
+			return 0;
+		int nodes= outgoing ? count[1] : count[2];
+		return nodes==0 ? 0 : ((double)count[0])/nodes;
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package CSP;
+
+import dataStructures.Query;
+
+/**
+ * ALE - settings of the search of one pattern (time budget and variable ordering), asked by DFSCode.frequency before the search 
+ * when Settings.searchPolicy is set.
+ * Called by the lattice threads (Settings.latticeThreads) at the same time.
+ */
+public interface PatternSearchPolicy 
+{
+	/**
+	 * @return the time budget (milliseconds) for validating one candidate node of this pattern, or -1 for the adaptive budget
+	 */
+	public long getTimeBudget(Query pattern);
+	
+	/**
+	 * @return the order of the variables for the searches of this pattern (see VariableOrderings), or null for the one of -order
+	 */
+	public VariableOrdering getVariableOrdering(Query pattern);
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package CSP;
+
+import java.util.Arrays;
+
+import utilities.SortedIntersection;
+
+import dataStructures.CSRAdjacency;
+import dataStructures.myNode;
+
+/**
+ * ALE - the frame stack of the iterative DFSSearch.searchExistances, kept by each thread between searches so a search
+ * allocates nothing. Depth d holds the d-th variable visited after the assigned ones, the candidates it goes over 
+ * (a group of the adjacency, or the intersection of several in the buffer of the depth) and the node it has assigned.
+ * The nodes assigned at any depth are stamped with the epoch of the search, so a node is already used when its stamp is the epoch.
+ */
+class SearchFrames 
+{
+	private static final ThreadLocal<SearchFrames> cached= new ThreadLocal<SearchFrames>();
+	
+	//by depth
+	int[] variable= new int[0];
+	int[] position= new int[0];
+	private int[] assigned= new int[0];
+	int[][] source= new int[0][];
+	int[] to= new int[0];
+	private int[][] buffers= new int[0][];
+	
+	//the neighbors of the assigned neighbor variables, while the candidates of a depth are computed
+	private int[][] rangeArray= new int[0][];
+	private int[] rangeFrom= new int[0];
+	private int[] rangeTo= new int[0];
+	private int[] rangeVariable= new int[0];
+	private int[] rangeOrder= new int[0];
+	
+	private int[] stamps= new int[0];
+	private int epoch=0;
+	private boolean inUse=false;
+	
+	/**
+	 * @return the frames of this thread, sized for the variables, or new ones if they are used by a search in progress 
+	 */
+	static SearchFrames acquire(Variable[] variables)
+	{
+		SearchFrames frames= cached.get();
+		if(frames==null || frames.inUse)
+		{
+			frames= new SearchFrames();
+			if(cached.get()==null)
+				cached.set(frames);
+		}
+		frames.inUse=true;
+		frames.prepare(variables);
+		return frames;
+	}
+	
+	void release()
+	{
+		inUse=false;
+	}
+	
+	private void prepare(Variable[] variables)
+	{
+		int depths= variables.length+1;
+		if(variable.length<depths)
+		{
+			variable= new int[depths];
+			position= new int[depths];
+			assigned= new int[depths];
+			source= new int[depths][];
+			to= new int[depths];
+			buffers= Arrays.copyOf(buffers, depths);
+		}
+		int maxConstraints=0;
+		for (int i = 0; i < variables.length; i++) 
+			maxConstraints= Math.max(maxConstraints, variables[i].getDistanceConstrainedWith().size()+variables[i].getDistanceConstrainedBy().size());
+		if(rangeFrom.length<maxConstraints)
+		{
+			rangeArray= new int[maxConstraints][];
+			rangeFrom= new int[maxConstraints];
+			rangeTo= new int[maxConstraints];
+			rangeVariable= new int[maxConstraints];
+			rangeOrder= new int[maxConstraints];
+		}
+		int numberOfNodes= variables.length==0 ? 0 : variables[0].getList().getUniverse().size();
+		if(stamps.length<numberOfNodes)
+		{
+			stamps= new int[numberOfNodes];
+			epoch=0;
+		}
+		if(epoch==Integer.MAX_VALUE)
+		{
+			Arrays.fill(stamps, 0);
+			epoch=0;
+		}
+		epoch++;
+	}
+	
+	//for the nodes assigned before the search
+	void stamp(int nodeID)
+	{
+		stamps[nodeID]=epoch;
+	}
+	
+	boolean isStamped(int nodeID)
+	{
+		return stamps[nodeID]==epoch;
+	}
+	
+	void enter(int depth, int variableIndex)
+	{
+		variable[depth]=variableIndex;
+		assigned[depth]=-1;
+	}
+	
+	void assign(int depth, int nodeID)
+	{
+		assigned[depth]=nodeID;
+		stamps[nodeID]=epoch;
+	}
+	
+	//the node of the depth is no longer assigned
+	void unassign(int depth)
+	{
+		if(assigned[depth]>=0)
+			stamps[assigned[depth]]=0;
+		assigned[depth]=-1;
+	}
+	
+	//range k: the neighbors of node in the given direction that can be the node of variable
+	void setRange(int k, int variableID, myNode node, int direction, int label, double edgeLabel)
+	{
+		rangeVariable[k]=variableID;
+		int group= node.getReachableGroup(direction, label, edgeLabel);
+		if(group<0)
+		{
+			rangeArray[k]=null;
+			rangeFrom[k]=0;
+			rangeTo[k]=0;
+			return;
+		}
+		CSRAdjacency adjacency= node.getAdjacency();
+		rangeArray[k]=adjacency.getNeighborArray(direction);
+		rangeFrom[k]=adjacency.getGroupStart(direction, group);
+		rangeTo[k]=adjacency.getGroupEnd(direction, group);
+	}
+	
+	/**
+	 * sets the candidates of the depth to the common nodes of the first count ranges, as Util.getIntersection does 
+	 * (starting from the smallest one). position[depth] is set to the first of them.
+	 * @return how many there are
+	 */
+	int intersect(int depth, int count)
+	{
+		if(count==0)
+			return setCandidates(depth, null, 0, 0);
+		if(count==1)
+			return setCandidates(depth, rangeArray[0], rangeFrom[0], rangeTo[0]);
+		for (int i = 0; i < count; i++) 
+		{
+			int k= i;
+			for (; k > 0 && size(rangeOrder[k-1])>size(i); k--) 
+				rangeOrder[k]= rangeOrder[k-1];
+			rangeOrder[k]= i;
+		}
+		int smallest= rangeOrder[0];
+		if(size(smallest)==0)
+			return setCandidates(depth, null, 0, 0);
+		if(buffers[depth]==null || buffers[depth].length<size(smallest))
+			buffers[depth]= new int[Math.max(size(smallest), buffers[depth]==null ? 16 : 2*buffers[depth].length)];
+		int[] inter= buffers[depth];
+		int other= rangeOrder[1];
+		int size= SortedIntersection.intersect(rangeArray[smallest], rangeFrom[smallest], rangeTo[smallest], rangeArray[other], rangeFrom[other], rangeTo[other], inter);
+		for (int j = 2; j < count && size>0; j++) 
+		{
+			other= rangeOrder[j];
+			size= SortedIntersection.intersect(inter, 0, size, rangeArray[other], rangeFrom[other], rangeTo[other], inter);
+		}
+		return setCandidates(depth, inter, 0, size);
+	}
+	
+	private int setCandidates(int depth, int[] values, int from, int end)
+	{
+		source[depth]=values;
+		position[depth]=from;
+		to[depth]=end;
+		return end-from;
+	}
+	
+	private int size(int k)
+	{
+		return rangeTo[k]-rangeFrom[k];
+	}
+	
+	/**
+	 * the backjumping of the search when there are no candidates: among the pairs of ranges without a common node 
+	 * (as Util.getZerosIntersectionIndices), the smallest sOrder.getSecondOrderValue of their variables, -1 if there is none
+	 */
+	int getConflictOrderValue(int count, SearchOrder sOrder)
+	{
+		int minValue=-1;
+		for (int i = 0; i < count; i++) 
+		{
+			for (int j = i+1; j < count; j++) 
+			{
+				if(!SortedIntersection.intersects(rangeArray[i], rangeFrom[i], rangeTo[i], rangeArray[j], rangeFrom[j], rangeTo[j]))
+				{
+					int value=sOrder.getSecondOrderValue(rangeVariable[i], rangeVariable[j]);
+					if(minValue==-1 || minValue>value)
+						minValue=value;
+				}
+			}
+		}
+		return minValue;
+	}
+}
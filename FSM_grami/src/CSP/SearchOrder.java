@@ -34,6 +34,14 @@ public class SearchOrder
 		}
 	}
 	
+	//ALE - copy of the visiting order, so it can be traversed by another search
+	public SearchOrder(SearchOrder other) 
+	{
+		order=other.order.clone();
+		addCounter=other.addCounter;
+		getCounter=other.getCounter;
+	}
+	
 	public void addNext(int index)
 	{
 		if(addCounter>=order.length)
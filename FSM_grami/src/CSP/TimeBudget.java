@@ -0,0 +1,105 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package CSP;
+
+import statistics.TimedOutSearchStats;
+import utilities.Settings;
+
+/**
+ * ALE - a monotonic deadline polled by the search itself, replacing the Timer thread that was created for every candidate node.
+ * The clock is only read every CHECK_INTERVAL polls, so checking it at every search step stays cheap.
+ */
+public class TimeBudget 
+{
+	private static final int CHECK_INTERVAL = 64;
+	
+	private long budgetNanos;
+	private long deadline;
+	private boolean isLimited=false;
+	private boolean isExhausted=false;
+	private int countdown;
+	
+	public TimeBudget(long millis)
+	{
+		setMillis(millis);
+	}
+	
+	public void setMillis(long millis)
+	{
+		budgetNanos=millis*1000000L;
+	}
+	
+	public long getMillis()
+	{
+		return budgetNanos/1000000L;
+	}
+	
+	//starts a new deadline, only enforced if Settings.LimitedTime
+	public void start()
+	{
+		deadline=System.nanoTime()+budgetNanos;
+		isLimited=Settings.LimitedTime;
+		isExhausted=false;
+		countdown=CHECK_INTERVAL;
+	}
+	
+	public void startUnlimited()
+	{
+		isLimited=false;
+		isExhausted=false;
+	}
+	
+	public void exhaust()
+	{
+		isExhausted=true;
+	}
+	
+	public boolean isExhausted()
+	{
+		if(isExhausted)
+			return true;
+		if(!isLimited || --countdown>0)
+			return false;
+		countdown=CHECK_INTERVAL;
+		if(System.nanoTime()-deadline>=0)
+		{
+			System.out.format("Time's up!%n");
+			isExhausted=true;
+		}
+		return isExhausted;
+	}
+	
+	/**
+	 * escalation policy: every timed out candidate is searched again without any limit, so a high timeout rate means the budget is wasted.
+	 * While the observed rate is above Settings.targetTimeoutRate the base budget is doubled (assuming each doubling halves the rate), 
+	 * never above Settings.maxSearchTimeLimit.
+	 */
+	public static long getAdaptiveMillis(long baseMillis)
+	{
+		long millis=baseMillis;
+		double rate=TimedOutSearchStats.getTimeoutRate();
+		while(rate>Settings.targetTimeoutRate && millis<Settings.maxSearchTimeLimit)
+		{
+			millis*=2;
+			rate/=2;
+		}
+		return Math.min(millis, Math.max(baseMillis, Settings.maxSearchTimeLimit));
+	}
+}
@@ -22,21 +22,20 @@ package CSP;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.Set;
-import java.util.Vector;
 
 import search.Searcher;
 import utilities.MyPair;
 
+import dataStructures.NodeSet;
 import dataStructures.myNode;
 
 public class Variable 
 {
-	private HashMap<Integer, myNode> list;
+	private NodeSet list; //ALE the domain, a compressed bitset of node IDs
 	private int label;
 	private int ID;  //represents patternNodeID
 	private ArrayList<MyPair<Integer, Double>> distanceConstrainedWith;
@@ -60,7 +59,7 @@ public class Variable
 		this.distanceConstrainedBy = distanceConstrainedBy;
 	}
 	
-	public Variable(int ID, int label,HashMap<Integer, myNode> list,ArrayList<MyPair<Integer, Double>> cons,ArrayList<MyPair<Integer, Double>> consBy) 
+	public Variable(int ID, int label,NodeSet list,ArrayList<MyPair<Integer, Double>> cons,ArrayList<MyPair<Integer, Double>> consBy) 
 	{
 		this.list=list;
 		this.label=label;
@@ -80,7 +79,7 @@ public class Variable
 		return distanceConstrainedWith.size();
 	}
 	
-	public void setList(HashMap<Integer, myNode> list)
+	public void setList(NodeSet list)
 	{
 		this.list=list;
 	}
@@ -108,7 +107,7 @@ public class Variable
 		return distanceConstrainedBy;
 	}
 
-	public HashMap<Integer, myNode> getList() {
+	public NodeSet getList() {
 		return list;
 	}
 
@@ -126,7 +125,7 @@ public class Variable
 		{
 			labelDistanceConstrainedWith= new HashSet<Integer>();
 			
-			Vector<Integer> temp = Searcher.neighborLabels.get(this.getLabel());
+			List<Integer> temp = Searcher.neighborLabels.get(this.getLabel());
 			if(temp!=null)
 				labelDistanceConstrainedWith.addAll(temp);
 		}
@@ -139,7 +138,7 @@ public class Variable
 		{
 			labelDistanceConstrainedBy= new HashSet<Integer>();
 			
-			Vector<Integer> temp = Searcher.revNeighborLabels.get(this.getLabel());
+			List<Integer> temp = Searcher.revNeighborLabels.get(this.getLabel());
 			if(temp!=null)
 				labelDistanceConstrainedBy.addAll(temp);
 		}
@@ -156,9 +155,9 @@ public class Variable
 	
 	public void printList()
 	{
-		for (Entry<Integer, myNode> entry : list.entrySet())  
-            System.out.println("ORIGINAL NODE ID = " + entry.getKey() + 
-                             ", Value = id: " + entry.getValue().getID() + ", label: " + entry.getValue().getLabel()); 
+		for (myNode node : list)  
+            System.out.println("ORIGINAL NODE ID = " + node.getID() + 
+                             ", Value = id: " + node.getID() + ", label: " + node.getLabel()); 
 	}
 	
 	//ALE
@@ -167,9 +166,9 @@ public class Variable
 		if(individualNodes == null)
 		{
 			individualNodes = new HashSet<Integer>();
-			for (Entry<Integer, myNode> entry : list.entrySet())
+			for (myNode node : list)
 			{
-				individualNodes.add(entry.getValue().getID());
+				individualNodes.add(node.getID());
 			}
 		}
 
@@ -19,17 +19,15 @@ along with Grami.  If not, see <http://www.gnu.org/licenses/>.
 
 package CSP;
 
-import java.util.ArrayList;
-
-import utilities.MyPair;
+import dataStructures.IntRange;
 
 public class VariableCandidates 
 {
 
 	private int variableID;
-	private ArrayList<MyPair<Integer, Double>> candidates;
+	private IntRange candidates;
 	
-	public VariableCandidates(int variableID,ArrayList<MyPair<Integer, Double>> candidates) 
+	public VariableCandidates(int variableID,IntRange candidates) 
 	{
 		this.variableID=variableID;
 		this.candidates=candidates;
@@ -39,7 +37,7 @@ public class VariableCandidates
 		return variableID;
 	}
 
-	public ArrayList<MyPair<Integer, Double>> getCandidates() {
+	public IntRange getCandidates() {
 		return candidates;
 	}
 	
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package CSP;
+
+/**
+ * ALE - decides the order in which DFSSearch assigns the variables of a pattern. The order is fixed for the searches that use it 
+ * (the backjumping compares positions in it with SearchOrder.getSecondOrderValue), and every variable after the first one 
+ * must have a constraint with one before it, as its candidates are the neighbors of the nodes assigned to those.
+ */
+public interface VariableOrdering 
+{
+	/**
+	 * adds the variables to sOrder, begin first
+	 */
+	public void order(Variable[] variables, int begin, SearchOrder sOrder);
+}
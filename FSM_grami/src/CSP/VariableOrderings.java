@@ -0,0 +1,252 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package CSP;
+
+import java.util.ArrayList;
+
+import utilities.MyPair;
+import utilities.Settings;
+
+/**
+ * ALE - the variable orderings of the search, by the name given with -order:
+ * dfs (depth first over the constraints, the original order), domain (smallest current domain next), 
+ * constrained (most constraints with the variables already ordered next), cost (fewest estimated candidates next, 
+ * from the FanoutModel of the graph) and auto (for each pattern, whichever of the others has the smallest estimated search cost).
+ * Apart from dfs, the next variable is always one with a constraint to the ordered ones, ties go to the smaller index.
+ */
+public class VariableOrderings 
+{
+	public static final VariableOrdering DEPTH_FIRST= new VariableOrdering()
+	{
+		public void order(Variable[] variables, int begin, SearchOrder sOrder)
+		{
+			boolean[] visited= new boolean[variables.length];
+			visited[begin]=true;
+			sOrder.addNext(begin);
+			visit(variables, variables[begin], visited, sOrder);
+		}
+		
+		private void visit(Variable[] variables, Variable vb, boolean[] visited, SearchOrder sOrder)
+		{
+			ArrayList<MyPair<Integer, Double>> constrains= vb.getDistanceConstrainedWith();
+			for (int i = 0; i < constrains.size(); i++) 
+			{
+				Variable currentVB= variables[constrains.get(i).getA()];
+				if(!visited[currentVB.getID()])
+				{
+					visited[currentVB.getID()]=true;
+					sOrder.addNext(currentVB.getID());
+					visit(variables, currentVB, visited, sOrder);
+				}
+			}
+			ArrayList<MyPair<Integer, Double>> constrainsBY= vb.getDistanceConstrainedBy();
+			for (int i = 0; i < constrainsBY.size(); i++) 
+			{
+				Variable currentVB= variables[constrainsBY.get(i).getA()];
+				if(!visited[currentVB.getID()])
+				{
+					visited[currentVB.getID()]=true;
+					sOrder.addNext(currentVB.getID());
+					visit(variables, currentVB, visited, sOrder);
+				}
+			}
+		}
+	};
+	
+	public static final VariableOrdering SMALLEST_DOMAIN= new GreedyOrdering()
+	{
+		long score(Variable[] variables, boolean[] ordered, int candidate)
+		{
+			return variables[candidate].getListSize();
+		}
+	};
+	
+	public static final VariableOrdering MOST_CONSTRAINED= new GreedyOrdering()
+	{
+		//fewer constraints with the ordered variables in the high bits, then the domain size
+		long score(Variable[] variables, boolean[] ordered, int candidate)
+		{
+			return (((long)-getNumberOfOrderedNeighbors(variables, ordered, candidate))<<32) + variables[candidate].getListSize();
+		}
+	};
+	
+	public static final VariableOrdering COST= new GreedyOrdering()
+	{
+		long score(Variable[] variables, boolean[] ordered, int candidate)
+		{
+			return (long)Math.ceil(getEstimatedCandidates(variables, ordered, candidate));
+		}
+	};
+	
+	public static final VariableOrdering AUTO= new VariableOrdering()
+	{
+		private final VariableOrdering[] orderings= {DEPTH_FIRST, SMALLEST_DOMAIN, MOST_CONSTRAINED, COST};
+		
+		public void order(Variable[] variables, int begin, SearchOrder sOrder)
+		{
+			int[] best=null;
+			double bestCost=0;
+			for (int i = 0; i < orderings.length; i++) 
+			{
+				SearchOrder candidate= new SearchOrder(variables.length);
+				orderings[i].order(variables, begin, candidate);
+				int[] order= new int[variables.length];
+				for (int j = 0; j < order.length; j++) 
+					order[j]=candidate.getVariableIndex(j);
+				double cost= getEstimatedCost(variables, order);
+				if(best==null || cost<bestCost)
+				{
+					best=order;
+					bestCost=cost;
+				}
+			}
+			for (int j = 0; j < best.length; j++) 
+				sOrder.addNext(best[j]);
+		}
+	};
+	
+	/**
+	 * @return the ordering with this name (see the class comment), null if there is none
+	 */
+	public static VariableOrdering get(String name)
+	{
+		if(name.equals("dfs"))
+			return DEPTH_FIRST;
+		if(name.equals("domain"))
+			return SMALLEST_DOMAIN;
+		if(name.equals("constrained"))
+			return MOST_CONSTRAINED;
+		if(name.equals("cost"))
+			return COST;
+		if(name.equals("auto"))
+			return AUTO;
+		return null;
+	}
+	
+	//the one of Settings.variableOrdering
+	public static VariableOrdering getDefault()
+	{
+		VariableOrdering ordering= get(Settings.variableOrdering);
+		if(ordering==null)
+			return DEPTH_FIRST;
+		return ordering;
+	}
+	
+	/**
+	 * estimated number of search nodes of an order: the sum, over its prefixes, of the product of the estimated candidates 
+	 * of their variables (getEstimatedCandidates with the variables before)
+	 */
+	public static double getEstimatedCost(Variable[] variables, int[] order)
+	{
+		boolean[] ordered= new boolean[variables.length];
+		double nodes=1;
+		double cost=0;
+		for (int i = 0; i < order.length; i++) 
+		{
+			if(i==0)
+				nodes=variables[order[i]].getListSize();
+			else
+				nodes*=getEstimatedCandidates(variables, ordered, order[i]);
+			cost+=nodes;
+			ordered[order[i]]=true;
+		}
+		return cost;
+	}
+	
+	/**
+	 * candidates expected for a variable once the ordered ones are assigned: the smallest average fan-out of its 
+	 * constraints with them, at most its domain size
+	 */
+	static double getEstimatedCandidates(Variable[] variables, boolean[] ordered, int candidate)
+	{
+		Variable vb= variables[candidate];
+		FanoutModel model= FanoutModel.get(vb.getList().getUniverse());
+		double estimate= vb.getListSize();
+		//vb -> other: from the node of other, its incoming neighbors
+		ArrayList<MyPair<Integer, Double>> constrains= vb.getDistanceConstrainedWith();
+		for (int i = 0; i < constrains.size(); i++) 
+		{
+			Variable other= variables[constrains.get(i).getA()];
+			if(ordered[other.getID()])
+				estimate= Math.min(estimate, model.getFanout(other.getLabel(), constrains.get(i).getB(), vb.getLabel(), false));
+		}
+		ArrayList<MyPair<Integer, Double>> constrainsBY= vb.getDistanceConstrainedBy();
+		for (int i = 0; i < constrainsBY.size(); i++) 
+		{
+			Variable other= variables[constrainsBY.get(i).getA()];
+			if(ordered[other.getID()])
+				estimate= Math.min(estimate, model.getFanout(other.getLabel(), constrainsBY.get(i).getB(), vb.getLabel(), true));
+		}
+		return estimate;
+	}
+	
+	static int getNumberOfOrderedNeighbors(Variable[] variables, boolean[] ordered, int candidate)
+	{
+		int count=0;
+		ArrayList<MyPair<Integer, Double>> constrains= variables[candidate].getDistanceConstrainedWith();
+		for (int i = 0; i < constrains.size(); i++) 
+		{
+			if(ordered[constrains.get(i).getA()])
+				count++;
+		}
+		ArrayList<MyPair<Integer, Double>> constrainsBY= variables[candidate].getDistanceConstrainedBy();
+		for (int i = 0; i < constrainsBY.size(); i++) 
+		{
+			if(ordered[constrainsBY.get(i).getA()])
+				count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * adds, after begin, the variable with a constraint to the ordered ones that has the smallest score, until all are ordered
+	 */
+	private static abstract class GreedyOrdering implements VariableOrdering
+	{
+		abstract long score(Variable[] variables, boolean[] ordered, int candidate);
+		
+		public void order(Variable[] variables, int begin, SearchOrder sOrder)
+		{
+			boolean[] ordered= new boolean[variables.length];
+			ordered[begin]=true;
+			sOrder.addNext(begin);
+			for (int added = 1; added < variables.length; added++) 
+			{
+				int next=-1;
+				long nextScore=0;
+				for (int i = 0; i < variables.length; i++) 
+				{
+					if(ordered[i] || getNumberOfOrderedNeighbors(variables, ordered, i)==0)
+						continue;
+					long score= score(variables, ordered, i);
+					if(next==-1 || score<nextScore)
+					{
+						next=i;
+						nextScore=score;
+					}
+				}
+				if(next==-1)
+					return; //not connected
+				ordered[next]=true;
+				sOrder.addNext(next);
+			}
+		}
+	}
+}
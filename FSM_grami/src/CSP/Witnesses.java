@@ -0,0 +1,101 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package CSP;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import utilities.Settings;
+
+import dataStructures.myNode;
+
+/**
+ * ALE - a sample of the embeddings found by a DFSSearch (node IDs by variable), at most PER_NODE of them for each node 
+ * of each domain and Settings.witnessLimit in all. The search of a child pattern (the same variables plus maybe one)
+ * first tries to complete one of these with the new edge before searching from scratch.
+ * Not modified once the search that filled it has ended.
+ */
+public class Witnesses 
+{
+	private static final int PER_NODE = 2;
+	
+	private final ArrayList<HashMap<Integer, ArrayList<int[]>>> byNode;
+	private int size=0;
+	
+	public Witnesses(int numberOfVariables)
+	{
+		byNode= new ArrayList<HashMap<Integer, ArrayList<int[]>>>(numberOfVariables);
+		for (int i = 0; i < numberOfVariables; i++) 
+			byNode.add(new HashMap<Integer, ArrayList<int[]>>());
+	}
+	
+	public int getNumberOfVariables()
+	{
+		return byNode.size();
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * keeps the (complete) instance if one of its nodes has less than PER_NODE embeddings yet
+	 */
+	public void add(AssignmentInstance instance)
+	{
+		if(size>=Settings.witnessLimit)
+			return;
+		int[] embedding= new int[byNode.size()];
+		boolean isNeeded=false;
+		for (int i = 0; i < embedding.length; i++) 
+		{
+			myNode node= instance.getAssignment(i);
+			if(node==null)
+				return;
+			embedding[i]= node.getID();
+			ArrayList<int[]> list= byNode.get(i).get(embedding[i]);
+			if(list==null || list.size()<PER_NODE)
+				isNeeded=true;
+		}
+		if(!isNeeded)
+			return;
+		for (int i = 0; i < embedding.length; i++) 
+		{
+			ArrayList<int[]> list= byNode.get(i).get(embedding[i]);
+			if(list==null)
+			{
+				list= new ArrayList<int[]>(PER_NODE);
+				byNode.get(i).put(embedding[i], list);
+			}
+			if(list.size()<PER_NODE)
+				list.add(embedding);
+		}
+		size++;
+	}
+	
+	/**
+	 * @return the kept embeddings that map this variable to this node, or null
+	 */
+	public ArrayList<int[]> get(int variable, int nodeID)
+	{
+		return byNode.get(variable).get(nodeID);
+	}
+}
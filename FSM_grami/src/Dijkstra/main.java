@@ -40,6 +40,7 @@ import automorphism.Automorphism;
 
 import CSP.ConstraintGraph;
 import CSP.DFSSearch;
+import CSP.VariableOrderings;
 
 import pruning.SPpruner;
 
@@ -47,6 +48,7 @@ import search.Searcher;
 import statistics.DistinctLabelStat;
 import statistics.TimedOutSearchStats;
 
+import utilities.CanonicalCache;
 import utilities.CommandLineParser;
 import utilities.DfscodesCache;
 import utilities.Settings;
@@ -57,6 +59,8 @@ import dataStructures.DFScodeSerializer;
 import dataStructures.Graph;
 import dataStructures.HPListGraph;
 import dataStructures.MyGraph;
+import dataStructures.PatternKey;
+import dataStructures.PatternStore;
 import dataStructures.Query;
 import dataStructures.StaticData; //ALE
 import decomposer.Decomposer;
@@ -87,7 +91,7 @@ public class main {
 		watch.start();
 		
 		//we will only store subgraphs that have >= minSizeOfGraphs number of vertices
-		HashMap<String, Boolean> alreadyMined = new HashMap<String, Boolean>();
+		HashMap<PatternKey, Boolean> alreadyMined = new HashMap<PatternKey, Boolean>();
 		
 		//dictionary for nodeLabels
 		HashMap<Integer, String> invertedNodeLabels = new HashMap<Integer, String>();
@@ -96,12 +100,41 @@ public class main {
 		String file = "";
 		int minSizeOfGraphs = 3; //default
 		int minFreqThreshold = -1;
-		if(args.length > 0)
+		//positional arguments (file, minSize, minFreqThreshold) can be followed by mode flags
+		ArrayList<String> positional = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++)
 		{
-			file = args[0];
-			minSizeOfGraphs = Integer.parseInt(args[1]);
-			if(args.length == 3)
-				minFreqThreshold = Integer.parseInt(args[2]);
+			if(args[i].equals("-singlepass"))
+				Settings.singlePass = true;
+			else if(args[i].equals("-threads"))
+				Settings.searchThreads = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-latticethreads"))
+				Settings.latticeThreads = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-cachemb"))
+				Settings.cacheBudgetMB = Long.parseLong(args[++i]);
+			else if(args[i].equals("-savesnapshot"))
+				Settings.snapshotFile = args[++i];
+			else if(args[i].equals("-store"))
+				Settings.storeFile = args[++i];
+			else if(args[i].equals("-topk"))
+				Settings.topK = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-closed"))
+				Settings.closedOnly = true;
+			else if(args[i].equals("-maximal"))
+				Settings.maximalOnly = true;
+			else if(args[i].equals("-witnesses"))
+				Settings.witnessLimit = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-order"))
+				Settings.variableOrdering = args[++i];
+			else
+				positional.add(args[i]);
+		}
+		if(positional.size() > 0)
+		{
+			file = positional.get(0);
+			minSizeOfGraphs = Integer.parseInt(positional.get(1));
+			if(positional.size() == 3)
+				minFreqThreshold = Integer.parseInt(positional.get(2));
 		}
 		
 		if(minFreqThreshold == -1 || minFreqThreshold < 2)
@@ -111,6 +144,20 @@ public class main {
 		
 		StaticData.setMinSizeOfGraphs(minSizeOfGraphs);
 		
+		if(Settings.topK > 0 && (Settings.closedOnly || Settings.maximalOnly))
+		{
+			//the threshold of a top-k search is raised by every pattern, so the k best closed/maximal ones could be pruned
+			System.out.println("-topk can not be combined with -closed or -maximal.\nFinished.");
+			return;
+		}
+		if(VariableOrderings.get(Settings.variableOrdering) == null)
+		{
+			System.out.println("Unknown -order "+Settings.variableOrdering+", expected dfs, domain, constrained, cost or auto.\nFinished.");
+			return;
+		}
+		if(Settings.closedOnly)
+			Settings.exactSupport = true; //the supports of a node and its children are compared
+		
 		try
 		{
 			//sr = new Searcher<String, String>("sample1.lg", 1); //sr = new Searcher<String, String>("swanTest5.lg", freq, 1);
@@ -121,17 +168,60 @@ public class main {
 			//System.out.println("Max frequency of edges found: " + StaticData.getMaxFrequencyOfEdges());
 			int freq = -1;
 			
+			//the graph is loaded and labeled only once, every threshold just adds back what became frequent
+			if(file.length() > 0)
+				sr = new Searcher<String, String>(file, 1);
+			else
+				sr = new Searcher<String, String>("sample1.lg", 1);
+			if(Settings.snapshotFile != null)
+				sr.getSingleGraph().writeSnapshot(Settings.snapshotFile);
+			if(Settings.storeFile != null)
+				PatternStore.open(Settings.storeFile, sr.getSingleGraph());
 			
+			if(Settings.singlePass || Settings.topK > 0)
+			{
+				//mine the lattice once at minFreqThreshold with exact supports, then split the result by support.
+				//By anti-monotonicity, the patterns with support >= freq are exactly what a run at freq would find.
+				//With -topk the result only has the top k patterns, so the files go down to the lowest support among them.
+				Settings.exactSupport = true;
+				int maxFreq = StaticData.getMaxFrequencyOfEdges();
+				if(minFreqThreshold > maxFreq)
+				{
+					System.out.println("This value for minThreshold does not generate any frequent subgraphs.\nFinished.");
+					return;
+				}
+				
+				sr.setFreqThreshold(minFreqThreshold);
+				sr.initialize();
+				sr.printInitials();
+				sr.search();
+				watch.stop();
+				invertedNodeLabels = sr.getSingleGraph().getInvertedNodeLabelsDictionary();
+				
+				int lowestFreq = minFreqThreshold;
+				if(Settings.topK > 0 && sr.result.size() > 0)
+					lowestFreq = sr.getSupport(sr.result.size() - 1); //sorted by descending support
+				for(freq = maxFreq; freq >= lowestFreq; freq--)
+				{
+					ArrayList<Integer> withThisSupport = new ArrayList<Integer>();
+					int numberOfPatterns = 0;
+					for (int i = 0; i < sr.result.size(); i++) 
+					{
+						int support = sr.getSupport(i);
+						if(support >= freq)
+							numberOfPatterns++;
+						if(support == freq)
+							withThisSupport.add(i);
+					}
+					writeOutputFile(sr, freq, watch, numberOfPatterns, withThisSupport, alreadyMined, invertedNodeLabels, minSizeOfGraphs);
+				}
+			}
+			else
 			//for(int freq = freqStart; freq > 2; --freq)
 			//for(int freq = 12; freq > 1; --freq)
 			do
 			//for(int freq = 2; freq > 1; --freq)
 			{	
-				if(file.length() > 0)
-					sr = new Searcher<String, String>(file, 1);
-				else
-					sr = new Searcher<String, String>("sample1.lg", 1);
-				
 				if(freq == -1)
 				{
 					freq = StaticData.getMaxFrequencyOfEdges(); //start on the max frequency
@@ -163,57 +253,12 @@ public class main {
 				watch.stop();
 			
 					
-				//write output file for the following things:
-				//1- time
-				//2- number of resulted patterns
-				//3- the list of frequent subgraphs
-				FileWriter fw;
 				if(invertedNodeLabels.size() == 0)
 					invertedNodeLabels = sr.getSingleGraph().getInvertedNodeLabelsDictionary();
-				try
-				{
-					String fName = "Output_mod_freq"+freq+".txt";
-				
-					fw = new FileWriter(fName);
-					fw.write(watch.getElapsedTime()/1000.0+"\n");
-					fw.write(sr.result.size()+"\n");
-				
-					//write the frequent subgraphs
-					int sgNumber = 0;
-					for (int i = 0; i < sr.result.size(); i++) 
-					{	
-						String out = DFScodeSerializer.serialize(sr.result.get(i));
-						if(sr.result.get(i).getNodeCount() >= minSizeOfGraphs && !alreadyMined.containsKey(out))//if(alreadyMined.containsKey(out) &&  alreadyMined.get(out) == false)
-						{
-							alreadyMined.put(out, true);
-							
-							//write generic structure
-							out = DFScodeSerializer.serialize(sr.result.get(i), invertedNodeLabels);
-							fw.write(i+":\n");//fw.write(sgNumber+":\n");//fw.write(i+":\n");
-							fw.write("Size: " + sr.result.get(i).getNodeCount() + "\n");
-							fw.write(out);
-							
-							//write instances
-							ArrayList<MyGraph> subgraphInstances = sr.fetchSubgraphInstances(i);
-							out = "Number of instances: " + subgraphInstances.size() + "\nInstances:\n";
-							int n = 0;
-							for(MyGraph aux : subgraphInstances)
-							{
-								out += "#" + n + ": ";
-								out += aux.toString() +"\n";
-								n++;
-							}
-							fw.write(out);
-							
-							sgNumber++;
-						}
-					}
-					fw.close();
-				}
-				catch (Exception e)
-				{
-					e.printStackTrace();
-				}
+				ArrayList<Integer> all = new ArrayList<Integer>();
+				for (int i = 0; i < sr.result.size(); i++) 
+					all.add(i);
+				writeOutputFile(sr, freq, watch, sr.result.size(), all, alreadyMined, invertedNodeLabels, minSizeOfGraphs);
 				
 				//update freq
 				freq--;
@@ -225,6 +270,10 @@ public class main {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
+		finally
+		{
+			PatternStore.close();
+		}
 		
 		//ORIGINAL
 		//try
@@ -293,5 +342,61 @@ public class main {
 		System.out.println("File: " + file);
 		System.out.println("minSize: " + minSizeOfGraphs);
 		System.out.println("minFreqThreshold: " + minFreqThreshold);
+		System.out.println("Noncandidates cache: " + DfscodesCache.getData());
+		System.out.println("Canonical checks cache: " + CanonicalCache.getData());
+	}
+	
+	//write output file for the following things:
+	//1- time
+	//2- number of resulted patterns
+	//3- the list of frequent subgraphs (only the ones in indices that were not written before)
+	private static void writeOutputFile(Searcher<String, String> sr, int freq, StopWatch watch, int numberOfPatterns, ArrayList<Integer> indices,
+			HashMap<PatternKey, Boolean> alreadyMined, HashMap<Integer, String> invertedNodeLabels, int minSizeOfGraphs)
+	{
+		FileWriter fw;
+		try
+		{
+			String fName = "Output_mod_freq"+freq+".txt";
+		
+			fw = new FileWriter(fName);
+			fw.write(watch.getElapsedTime()/1000.0+"\n");
+			fw.write(numberOfPatterns+"\n");
+		
+			//write the frequent subgraphs
+			int sgNumber = 0;
+			for (int i : indices) 
+			{	
+				PatternKey key = PatternKey.of(sr.result.get(i));
+				if(sr.result.get(i).getNodeCount() >= minSizeOfGraphs && !alreadyMined.containsKey(key))//if(alreadyMined.containsKey(out) &&  alreadyMined.get(out) == false)
+				{
+					alreadyMined.put(key.intern(), true);
+					
+					//write generic structure
+					String out = DFScodeSerializer.serialize(sr.result.get(i), invertedNodeLabels);
+					fw.write(i+":\n");//fw.write(sgNumber+":\n");//fw.write(i+":\n");
+					fw.write("Size: " + sr.result.get(i).getNodeCount() + "\n");
+					fw.write(out);
+					
+					//write instances
+					ArrayList<MyGraph> subgraphInstances = sr.fetchSubgraphInstances(i);
+					out = "Number of instances: " + subgraphInstances.size() + "\nInstances:\n";
+					int n = 0;
+					for(MyGraph aux : subgraphInstances)
+					{
+						out += "#" + n + ": ";
+						out += aux.toString() +"\n";
+						n++;
+					}
+					fw.write(out);
+					
+					sgNumber++;
+				}
+			}
+			fw.close();
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
 	}
 }
@@ -19,6 +19,7 @@ along with Grami.  If not, see <http://www.gnu.org/licenses/>.
 
 package automorphism;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 
@@ -26,8 +27,10 @@ import pruning.SPpruner;
 
 import CSP.DFSSearch;
 import CSP.Variable;
+import dataStructures.CSRAdjacency;
 import dataStructures.HPListGraph;
 import dataStructures.IntIterator;
+import dataStructures.NodeSet;
 import dataStructures.Query;
 import dataStructures.myNode;
 
@@ -40,16 +43,16 @@ public class Automorphism <NodeType, EdgeType>
 		return result;
 	}
 
-	private HashMap<Integer,myNode> nodes;
-	private HashMap<Integer,HashMap<Integer,myNode>> nodesByLabel;
+	private ArrayList<myNode> nodes; //node i at position i
+	private HashMap<Integer,NodeSet> nodesByLabel;
 	private int resultCounter;
 	
 	public Automorphism(HPListGraph<NodeType, EdgeType> graph) 
 	{
 		patternGraph=graph;
 		result= new Variable[graph.getNodeCount()];
-		nodes= new HashMap<Integer, myNode>();
-		nodesByLabel= new HashMap<Integer, HashMap<Integer,myNode>>();
+		nodes= new ArrayList<myNode>();
+		nodesByLabel= new HashMap<Integer, NodeSet>();
 		
 		Query qry = new Query((HPListGraph<Integer, Double>)graph);
 		
@@ -57,35 +60,56 @@ public class Automorphism <NodeType, EdgeType>
 		for (int i = 0; i < graph.getNodeCount(); i++) 
 		{
 			myNode newNode= new myNode(i,(Integer)graph.getNodeLabel(i));
-			nodes.put(newNode.getID(), newNode);
+			nodes.add(newNode);
 		}
+		//the adjacency of the pattern, every directed edge once
+		int[] nodeLabels= new int[graph.getNodeCount()];
+		for (int i = 0; i < graph.getNodeCount(); i++) 
+			nodeLabels[i]=nodes.get(i).getLabel();
+		int[] sources= new int[graph.getEdgeCount()];
+		int[] targets= new int[graph.getEdgeCount()];
+		double[] edgeLabels= new double[graph.getEdgeCount()];
+		int numberOfEdges=0;
 		for (int i = 0; i < graph.getNodeCount(); i++) 
 		{
-			myNode currentNode= nodes.get(i);
 			for (IntIterator currentEdges = graph.getEdgeIndices(i); currentEdges.hasNext();) 
 			{
 				int edge = currentEdges.next();
+				if(graph.getNodeA(edge)!=i)
+					continue;
 				int direction=graph.getDirection(edge, i);
 				int otherNodeIndex= graph.getOtherNode(edge, i);
-				myNode otherNode=nodes.get(otherNodeIndex);
 				if(direction==1)
-					currentNode.addreachableNode(otherNode, Double.parseDouble(graph.getEdgeLabel(edge)+""));
+				{
+					sources[numberOfEdges]=i;
+					targets[numberOfEdges]=otherNodeIndex;
+				}
 				else if(direction ==-1)
-					otherNode.addreachableNode(currentNode, Double.parseDouble(graph.getEdgeLabel(edge)+""));
+				{
+					sources[numberOfEdges]=otherNodeIndex;
+					targets[numberOfEdges]=i;
+				}
+				else
+					continue;
+				edgeLabels[numberOfEdges]=Double.parseDouble(graph.getEdgeLabel(edge)+"");
+				numberOfEdges++;
 			}
 		}
+		CSRAdjacency adjacency= new CSRAdjacency(nodeLabels, numberOfEdges, sources, targets, edgeLabels);
+		for (int i = 0; i < graph.getNodeCount(); i++) 
+			nodes.get(i).setAdjacency(adjacency);
 		//now fill by label
 		for (int i = 0; i < graph.getNodeCount(); i++) 
 		{
 			myNode currentNode = nodes.get(i);
 			
-			HashMap<Integer,myNode> currentLabelNodes= nodesByLabel.get(currentNode.getLabel());
+			NodeSet currentLabelNodes= nodesByLabel.get(currentNode.getLabel());
 			if(currentLabelNodes==null)
 			{
-				currentLabelNodes= new HashMap<Integer, myNode>();
+				currentLabelNodes= new NodeSet(nodes);
 				nodesByLabel.put(currentNode.getLabel(), currentLabelNodes);
 			}
-			currentLabelNodes.put(currentNode.getID(), currentNode);
+			currentLabelNodes.add(currentNode);
 		}
 		
 		SPpruner sp = new SPpruner();
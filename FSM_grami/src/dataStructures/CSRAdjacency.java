@@ -0,0 +1,296 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * ALE - compressed sparse row adjacency of a directed graph, built once when the graph is loaded.
+ * For each direction, the neighbors of a node are stored in one int array, grouped by (neighbor label, edge label),
+ * and every group is sorted by node ID. A group is then just a range of that array, handed out as an IntRange without copying.
+ * Pruning by frequency does not rebuild anything: the groups whose neighbor label is not active are hidden.
+ */
+public class CSRAdjacency 
+{
+	public static final int OUT = 0;
+	public static final int IN = 1;
+	
+	private final int numberOfNodes;
+	private final double[] edgeLabels; //distinct edge labels, sorted
+	private final int[][] nodeGroups = new int[2][]; //node ~ its first group, numberOfNodes+1 entries
+	private final int[][] groupKeys = new int[2][]; //group ~ label*edgeLabels.length + index of its edge label
+	private final int[][] groupStarts = new int[2][]; //group ~ its first neighbor, numberOfGroups+1 entries
+	private final int[][] neighbors = new int[2][];
+	private boolean[] activeLabels; //null means every label is active
+	
+	/**
+	 * @param nodeLabels label of each node, nodes are 0..nodeLabels.length-1
+	 * @param numberOfEdges number of entries used in sources, targets and labels
+	 */
+	public CSRAdjacency(int[] nodeLabels, int numberOfEdges, int[] sources, int[] targets, double[] labels)
+	{
+		numberOfNodes = nodeLabels.length;
+		double[] sortedLabels = Arrays.copyOf(labels, numberOfEdges);
+		Arrays.sort(sortedLabels);
+		int distinct = 0;
+		for (int i = 0; i < sortedLabels.length; i++) 
+		{
+			if(i==0 || sortedLabels[i]!=sortedLabels[i-1])
+				sortedLabels[distinct++] = sortedLabels[i];
+		}
+		edgeLabels = Arrays.copyOf(sortedLabels, distinct);
+		
+		build(OUT, nodeLabels, numberOfEdges, sources, targets, labels);
+		build(IN, nodeLabels, numberOfEdges, targets, sources, labels);
+	}
+	
+	private CSRAdjacency(int numberOfNodes, double[] edgeLabels)
+	{
+		this.numberOfNodes = numberOfNodes;
+		this.edgeLabels = edgeLabels;
+	}
+	
+	//ALE - the arrays of both directions, for a graph snapshot (the active labels are not saved)
+	public void write(GraphSnapshot.Writer out) throws IOException
+	{
+		out.writeInt(numberOfNodes);
+		out.writeDoubles(edgeLabels);
+		for (int direction = OUT; direction <= IN; direction++) 
+		{
+			out.writeInts(nodeGroups[direction]);
+			out.writeInts(groupKeys[direction]);
+			out.writeInts(groupStarts[direction]);
+			out.writeInts(neighbors[direction]);
+		}
+	}
+	
+	public static CSRAdjacency read(GraphSnapshot.Reader in) throws IOException
+	{
+		CSRAdjacency adjacency = new CSRAdjacency(in.readInt(), in.readDoubles());
+		for (int direction = OUT; direction <= IN; direction++) 
+		{
+			adjacency.nodeGroups[direction] = in.readInts();
+			adjacency.groupKeys[direction] = in.readInts();
+			adjacency.groupStarts[direction] = in.readInts();
+			adjacency.neighbors[direction] = in.readInts();
+		}
+		return adjacency;
+	}
+	
+	private void build(int direction, int[] nodeLabels, int numberOfEdges, int[] from, int[] to, double[] labels)
+	{
+		int[] offsets = new int[numberOfNodes+1];
+		for (int e = 0; e < numberOfEdges; e++) 
+			offsets[from[e]+1]++;
+		for (int i = 0; i < numberOfNodes; i++) 
+			offsets[i+1] += offsets[i];
+		
+		//each neighbor is keyed by (group key, node ID), so sorting a node's keys groups and sorts its neighbors at once
+		long[] keys = new long[numberOfEdges];
+		int[] next = Arrays.copyOf(offsets, numberOfNodes);
+		for (int e = 0; e < numberOfEdges; e++) 
+		{
+			long groupKey = getGroupKey(nodeLabels[to[e]], labels[e]);
+			keys[next[from[e]]++] = (groupKey<<32) | to[e];
+		}
+		
+		int numberOfGroups = 0;
+		for (int i = 0; i < numberOfNodes; i++) 
+		{
+			Arrays.sort(keys, offsets[i], offsets[i+1]);
+			for (int k = offsets[i]; k < offsets[i+1]; k++) 
+			{
+				if(k==offsets[i] || (keys[k]>>>32)!=(keys[k-1]>>>32))
+					numberOfGroups++;
+			}
+		}
+		
+		int[] nodeGroup = new int[numberOfNodes+1];
+		int[] groupKey = new int[numberOfGroups];
+		int[] groupStart = new int[numberOfGroups+1];
+		int[] neighbor = new int[numberOfEdges];
+		int g = 0;
+		for (int i = 0; i < numberOfNodes; i++) 
+		{
+			nodeGroup[i] = g;
+			for (int k = offsets[i]; k < offsets[i+1]; k++) 
+			{
+				if(k==offsets[i] || (keys[k]>>>32)!=(keys[k-1]>>>32))
+				{
+					groupKey[g] = (int)(keys[k]>>>32);
+					groupStart[g] = k;
+					g++;
+				}
+				neighbor[k] = (int)keys[k];
+			}
+		}
+		nodeGroup[numberOfNodes] = numberOfGroups;
+		groupStart[numberOfGroups] = numberOfEdges;
+		
+		nodeGroups[direction] = nodeGroup;
+		groupKeys[direction] = groupKey;
+		groupStarts[direction] = groupStart;
+		neighbors[direction] = neighbor;
+	}
+	
+	private long getGroupKey(int label, double edgeLabel)
+	{
+		int edgeLabelIndex = getEdgeLabelIndex(edgeLabel);
+		if(edgeLabelIndex<0)
+			return -1;
+		long key = ((long)label)*edgeLabels.length + edgeLabelIndex;
+		if(key>Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many node and edge labels for the adjacency index");
+		return key;
+	}
+	
+	/**
+	 * only the neighbors with these labels are visible from now on (the frequent labels)
+	 */
+	public void setActiveLabels(Set<Integer> labels)
+	{
+		int max = -1;
+		for (Iterator<Integer> it = labels.iterator(); it.hasNext();) 
+			max = Math.max(max, it.next());
+		boolean[] active = new boolean[max+1];
+		for (Iterator<Integer> it = labels.iterator(); it.hasNext();) 
+			active[it.next()] = true;
+		activeLabels = active;
+	}
+	
+	public boolean isActive(int label)
+	{
+		return activeLabels==null || (label<activeLabels.length && activeLabels[label]);
+	}
+	
+	/**
+	 * the neighbors of node with the given label, reached through edges with the given label (sorted by ID)
+	 */
+	public IntRange getNeighbors(int direction, int node, int label, double edgeLabel)
+	{
+		int g = getNeighborGroup(direction, node, label, edgeLabel);
+		if(g<0)
+			return IntRange.EMPTY;
+		return getGroup(direction, g);
+	}
+	
+	//ALE - the group that getNeighbors hands out, -1 if there is none. Read it with getNeighborArray, getGroupStart 
+	//and getGroupEnd where even the IntRange should not be created
+	public int getNeighborGroup(int direction, int node, int label, double edgeLabel)
+	{
+		if(!isActive(label))
+			return -1;
+		long key = getGroupKey(label, edgeLabel);
+		if(key<0)
+			return -1;
+		int g = Arrays.binarySearch(groupKeys[direction], nodeGroups[direction][node], nodeGroups[direction][node+1], (int)key);
+		if(g<0)
+			return -1;
+		return g;
+	}
+	
+	//number of neighbors of node with the given label, whatever the edge label
+	public int getDegree(int direction, int node, int label)
+	{
+		if(!isActive(label))
+			return 0;
+		int degree = 0;
+		for (int g = getFirstGroup(direction, node); g < getLastGroup(direction, node); g++) 
+		{
+			if(getGroupLabel(direction, g)==label)
+				degree += groupStarts[direction][g+1]-groupStarts[direction][g];
+		}
+		return degree;
+	}
+	
+	public boolean hasNeighbors(int direction, int node)
+	{
+		for (int g = getFirstGroup(direction, node); g < getLastGroup(direction, node); g++) 
+		{
+			if(isActive(getGroupLabel(direction, g)))
+				return true;
+		}
+		return false;
+	}
+	
+	//the groups of a node are [getFirstGroup, getLastGroup), including the ones with an inactive label
+	public int getFirstGroup(int direction, int node)
+	{
+		return nodeGroups[direction][node];
+	}
+	
+	public int getLastGroup(int direction, int node)
+	{
+		return nodeGroups[direction][node+1];
+	}
+	
+	public int getGroupLabel(int direction, int group)
+	{
+		return groupKeys[direction][group]/edgeLabels.length;
+	}
+	
+	public int getGroupEdgeLabelIndex(int direction, int group)
+	{
+		return groupKeys[direction][group]%edgeLabels.length;
+	}
+	
+	//position of edgeLabel among the distinct edge labels, or -1
+	public int getEdgeLabelIndex(double edgeLabel)
+	{
+		int index = Arrays.binarySearch(edgeLabels, edgeLabel);
+		if(index<0)
+			return -1;
+		return index;
+	}
+	
+	public double getGroupEdgeLabel(int direction, int group)
+	{
+		return edgeLabels[groupKeys[direction][group]%edgeLabels.length];
+	}
+	
+	public IntRange getGroup(int direction, int group)
+	{
+		return new IntRange(neighbors[direction], groupStarts[direction][group], groupStarts[direction][group+1]);
+	}
+	
+	//do not modify
+	public int[] getNeighborArray(int direction)
+	{
+		return neighbors[direction];
+	}
+	
+	public int getGroupStart(int direction, int group)
+	{
+		return groupStarts[direction][group];
+	}
+	
+	public int getGroupEnd(int direction, int group)
+	{
+		return groupStarts[direction][group+1];
+	}
+	
+	public int getNumberOfNodes()
+	{
+		return numberOfNodes;
+	}
+}
@@ -25,10 +25,13 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 
 import pruning.SPpruner;
+import pruning.SiblingDomains;
 
 import decomposer.Decomposer;
 
 import search.SearchLatticeNode;
+import search.TopKPatterns;
+import utilities.CanonicalCache;
 import utilities.DfscodesCache;
 import utilities.MyPair;
 import utilities.Settings;
@@ -36,7 +39,10 @@ import utilities.Util;
 
 import CSP.ConstraintGraph;
 import CSP.DFSSearch;
+import CSP.PatternSearchPolicy;
 import CSP.Variable;
+import CSP.VariableOrdering;
+import CSP.Witnesses;
 
 
 /**
@@ -82,15 +88,31 @@ public class DFSCode<NodeType, EdgeType> extends
 	
 	private HPListGraph<NodeType, EdgeType> me;
 	
+	//ALE - a child is its parent's graph plus one edge until it passes the canonical check (then me is built from it)
+	private HPExtendedGraph<NodeType, EdgeType> extendedGraph;
+	
+	private PatternKey patternKey=null;
+	
 	private IntFrequency finalFrequency=null;
 	
 	private Graph singleGraph;
 	
 	private Variable[] currentVariables=null;
 	private Variable[] previousStepVariables=null;
+	//ALE - domains that hold every image of every node in any embedding, for RightMostExtension to screen the extensions
+	private Variable[] domainVariables=null;
+	//ALE - embeddings found for this pattern, and the ones of the parent that its search tries to complete first
+	private Witnesses witnesses=null;
+	private Witnesses parentWitnesses=null;
+	//ALE - domains of the parent, where the search of this pattern starts, and the ones this pattern hands to its children
+	private SiblingDomains parentDomains=null;
+	private SiblingDomains siblingDomains=null;
 	
 	private HashMap<Integer, HashSet<Integer>> nonCandidates=null;
 	
+	//ALE - a child reads the nonCandidates of its parent until its frequency is computed, then it gets its own copy
+	private boolean sharedNonCandidates=false;
+	
 	public HashMap<Integer, HashSet<Integer>> getNonCandidates() {
 		return nonCandidates;
 	}
@@ -170,7 +192,7 @@ public class DFSCode<NodeType, EdgeType> extends
 		// clone current DFS-List
 		final GSpanEdge<NodeType, EdgeType> nextFirst = first.clone();
 		GSpanEdge<NodeType, EdgeType> nextLast = nextFirst;
-		final HPGraph<NodeType, EdgeType> g = ext.getFragment().getHPlistGraph();
+		final HPExtendedGraph<NodeType, EdgeType> g = new HPExtendedGraph<NodeType, EdgeType>(getHPlistGraph(), ext.edge);
 		final ArrayList<GSpanEdge<NodeType, EdgeType>> nextParents = new ArrayList<GSpanEdge<NodeType, EdgeType>>(
 				g.getNodeCount());
 
@@ -199,7 +221,14 @@ public class DFSCode<NodeType, EdgeType> extends
 		// get "new" DFSCode object
 		if(currentVariables==null)
 			System.out.println("noooooo!!");
-		return new DFSCode<NodeType, EdgeType>(sortedFreqLabels,singleGraph,Util.clone(nonCandidates)).set(ext.getFragment().getHPlistGraph(), nextFirst, nextLast, nextParents);
+		DFSCode<NodeType, EdgeType> child = new DFSCode<NodeType, EdgeType>(sortedFreqLabels,singleGraph,nonCandidates);
+		child.sharedNonCandidates = nonCandidates!=null;
+		child.extendedGraph = g;
+		child.parentWitnesses = witnesses;
+		if(siblingDomains==null && domainVariables!=null)
+			siblingDomains = new SiblingDomains(domainVariables, getQuery());
+		child.parentDomains = siblingDomains;
+		return child.set(null, nextFirst, nextLast, nextParents);
 	}
 
 	/*
@@ -287,6 +316,9 @@ public class DFSCode<NodeType, EdgeType> extends
 			return finalFrequency;
 		else
 		{
+			//ALE the graph is built now that the canonical check passed
+			getHPlistGraph();
+			
 			//Pruning by constraints
 			//PRUNER
 			//******* 1
@@ -334,6 +366,17 @@ public class DFSCode<NodeType, EdgeType> extends
 //			}
 			
 			
+			int freqThreshold= getFreqThreshold();
+			
+			//ALE a pattern evaluated by a previous run on this graph (-store) is not searched again
+			if(PatternStore.isOpen() && restoreFromStore(freqThreshold))
+				return finalFrequency;
+			
+			if(sharedNonCandidates)
+			{
+				nonCandidates= Util.clone(nonCandidates);
+				sharedNonCandidates=false;
+			}
 			
 			if(nonCandidates==null)
 			{
@@ -354,11 +397,11 @@ public class DFSCode<NodeType, EdgeType> extends
 						{
 							Entry<HPListGraph<NodeType, EdgeType>, ArrayList<Integer>> removedEdgeEntry = iterator.next();
 							HPListGraph<NodeType, EdgeType> listGraph= removedEdgeEntry.getKey();
-							String key=listGraph.toString();
-							if(DfscodesCache.cache.containsKey(key))
+							PatternKey key=PatternKey.of(listGraph);
+							HashMap<Integer, HashSet<Integer>>  nodeNonCandidates = DfscodesCache.get(key); //node ~ noncandidates
+							if(nodeNonCandidates!=null)
 							{
 								ArrayList<Integer> graphMappings=removedEdgeEntry.getValue();
-								HashMap<Integer, HashSet<Integer>>  nodeNonCandidates = DfscodesCache.cache.get(key); //node ~ noncandidates
 								
 								for (int j = 0; j < listGraph.getNodeCount(); j++) 
 								{
@@ -378,23 +421,29 @@ public class DFSCode<NodeType, EdgeType> extends
 					
 				}
 				
-				ConstraintGraph cg = new ConstraintGraph(singleGraph, q, (HashMap<Integer, HashSet<Integer>>)nonCandidates);
-				DFSSearch df = new DFSSearch(cg,singleGraph.getFreqThreshold(),nonCandidates);
+				ConstraintGraph cg = new ConstraintGraph(singleGraph, q, (HashMap<Integer, HashSet<Integer>>)nonCandidates, parentDomains);
+				DFSSearch df = new DFSSearch(cg,freqThreshold,nonCandidates);
+				df.setParentWitnesses(parentWitnesses);
+				applySearchPolicy(df, q);
 				df.searchExistances();
 				currentVariables=df.getResultVariables();
+				setDomainVariables(df);
+				witnesses=df.getWitnesses();
+				parentWitnesses=null;
+				parentDomains=null;
 				int freq=df.getFrequencyOfPattern();
 				
 				if(Settings.CACHING)
 				{
-					if(freq>=singleGraph.getFreqThreshold())
+					if(freq>=freqThreshold)
 						nonCandidates=df.getNonCandidates();
 				}
 				
 				if(Settings.CACHING)
 				{
-					String code = me.toString(); if(code==null) System.out.println("string null");
+					PatternKey code = getPatternKey();
 					HashMap<Integer, HashSet<Integer>> nonCands= nonCandidates; if(nonCands==null) System.out.println("nonvands null");
-					DfscodesCache.cache.put(code, nonCands);
+					else DfscodesCache.put(code, nonCands);
 				}
 
 				
@@ -422,12 +471,12 @@ public class DFSCode<NodeType, EdgeType> extends
 						{
 							Entry<HPListGraph<NodeType, EdgeType>, ArrayList<Integer>> removedEdgeEntry = iterator.next();
 							HPListGraph<NodeType, EdgeType> listGraph= removedEdgeEntry.getKey(); // each graph candidate
-							String key=listGraph.toString();
+							PatternKey key=PatternKey.of(listGraph);
 							ArrayList<Integer> graphMappings=removedEdgeEntry.getValue();//pattern nodeID ~ original ID
 							
-							if(DfscodesCache.cache.containsKey(key))
+							HashMap<Integer, HashSet<Integer>>  nodeNonCandidates = DfscodesCache.get(key); //node ~ noncandidates
+							if(nodeNonCandidates!=null)
 							{
-								HashMap<Integer, HashSet<Integer>>  nodeNonCandidates = DfscodesCache.cache.get(key); //node ~ noncandidates
 																
 								for (int j = 0; j < listGraph.getNodeCount(); j++) 
 								{
@@ -447,35 +496,108 @@ public class DFSCode<NodeType, EdgeType> extends
 				}
 				
 				
-				ConstraintGraph cg = new ConstraintGraph(singleGraph, q, (HashMap<Integer, HashSet<Integer>>)nonCandidates);
-				DFSSearch df = new DFSSearch(cg,singleGraph.getFreqThreshold(),nonCandidates);
+				ConstraintGraph cg = new ConstraintGraph(singleGraph, q, (HashMap<Integer, HashSet<Integer>>)nonCandidates, parentDomains);
+				DFSSearch df = new DFSSearch(cg,freqThreshold,nonCandidates);
+				df.setParentWitnesses(parentWitnesses);
+				applySearchPolicy(df, q);
 				
 				df.searchExistances(); //ALE this is where SPpruner's getPrunedList() is called
 				currentVariables=df.getResultVariables();
+				setDomainVariables(df);
+				witnesses=df.getWitnesses();
+				parentWitnesses=null;
+				parentDomains=null;
 				
 				int freq=df.getFrequencyOfPattern();
 				
 				if(Settings.CACHING)
 				{
-					if(freq>=singleGraph.getFreqThreshold())
+					if(freq>=freqThreshold)
 						nonCandidates=df.getNonCandidates();
 				}
 				
 				if(Settings.CACHING)
 				{
-					String code = me.toString(); if(code==null) System.out.println("string null");
+					PatternKey code = getPatternKey();
 					HashMap<Integer, HashSet<Integer>> nonCands= nonCandidates; if(nonCands==null) System.out.println("nonvands null");
-					DfscodesCache.cache.put(code, nonCands);
+					else DfscodesCache.put(code, nonCands);
 				}
 				
 				System.out.println("Freq: "+freq);
 				 finalFrequency= new IntFrequency(freq);
 				
 			}
+			if(PatternStore.isOpen())
+				PatternStore.add(getPatternKey(), freqThreshold, finalFrequency.intValue(), currentVariables, 
+						domainVariables==currentVariables ? null : domainVariables, nonCandidates);
 			return finalFrequency;
 		}
 	}
 	
+	//ALE - the settings Settings.searchPolicy gives to the search of this pattern
+	private static void applySearchPolicy(DFSSearch df, Query q)
+	{
+		PatternSearchPolicy policy= Settings.searchPolicy;
+		if(policy==null)
+			return;
+		long millis= policy.getTimeBudget(q);
+		if(millis>=0)
+			df.setTimeBudget(millis);
+		VariableOrdering ordering= policy.getVariableOrdering(q);
+		if(ordering!=null)
+			df.setVariableOrdering(ordering);
+	}
+	
+	//ALE - with exact supports (and no approximation) the result holds every image, otherwise the search stopped 
+	//at the threshold and only the pruned domains are complete
+	private void setDomainVariables(DFSSearch df)
+	{
+		siblingDomains=null;
+		if(Settings.exactSupport && !Settings.isApproximate)
+			domainVariables=currentVariables;
+		else
+			domainVariables=df.getDomainVariables();
+	}
+	
+	/**
+	 * @return the domains of the nodes after the search (each one holds all the images of its node), or null if unknown
+	 */
+	public Variable[] getDomainVariables() {
+		return domainVariables;
+	}
+	
+	//ALE - the threshold rises during a top-k search
+	public int getFreqThreshold()
+	{
+		if(TopKPatterns.isOn())
+			return Math.max(singleGraph.getFreqThreshold(), TopKPatterns.getThreshold());
+		return singleGraph.getFreqThreshold();
+	}
+	
+	//ALE
+	private boolean restoreFromStore(int freqThreshold)
+	{
+		PatternKey code = getPatternKey();
+		PatternStore.Record record = PatternStore.find(code, freqThreshold);
+		if(record==null)
+			return false;
+		Query q = getQuery();
+		currentVariables= record.getVariables(singleGraph, q);
+		nonCandidates= record.getNonCandidates();
+		sharedNonCandidates= false;
+		parentWitnesses= null;
+		parentDomains= null;
+		siblingDomains= null;
+		if(Settings.exactSupport && !Settings.isApproximate)
+			domainVariables= currentVariables;
+		else
+			domainVariables= record.getDomainVariables(singleGraph, q);
+		if(Settings.CACHING)
+			DfscodesCache.put(code, nonCandidates);
+		finalFrequency= new IntFrequency(record.getSupport());
+		return true;
+	}
+	
 	
 	public Variable[] getCurrentVariables() {
 		return currentVariables;
@@ -579,7 +701,7 @@ public class DFSCode<NodeType, EdgeType> extends
 	private boolean isCan(final MinExtensionSet<NodeType, EdgeType> set,
 			final int[] ackNodes, final int[] usedNodes, final int[] usedEdges) {
 
-		final HPGraph<NodeType, EdgeType> hp = me;
+		final HPGraph<NodeType, EdgeType> hp = getGraph();
 
 		for (int node = hp.getMaxNodeIndex() - 1; node >= 0; --node) {
 			// try each node as potential start node for a smaller DFSCode
@@ -751,14 +873,22 @@ public class DFSCode<NodeType, EdgeType> extends
 	 */
 	//ALE this is the function that is called from CanonicalPruningStep.java
 	public boolean isCanonical() {
+		//ALE the same codes are built again for every threshold
+		final PatternKey key = getPatternKey();
+		final Boolean known = CanonicalCache.get(key);
+		if (known != null) {
+			return known;
+		}
 		// create and initilize embedding Arrays
-		final int nc = me.getNodeCount();
-		final int ec = me.getEdgeCount();
+		final HPGraph<NodeType, EdgeType> hp = getGraph();
+		final int nc = hp.getNodeCount();
+		final int ec = hp.getEdgeCount();
 		final int[] ackNodes = getIntArray(nc, UNUSED);
 		final int[] usedNodes = getIntArray(nc, UNUSED);
 		final int[] usedEdges = getIntArray(ec, UNUSED);
 		final MinExtensionSet<NodeType, EdgeType> set = new MinExtensionSet<NodeType, EdgeType>();
 		final boolean ret = isCan(set, ackNodes, usedNodes, usedEdges);
+		CanonicalCache.put(key, ret);
 		return ret;
 	}
 
@@ -782,6 +912,12 @@ public class DFSCode<NodeType, EdgeType> extends
 //		if (tenv != null && getLevel() > 1) {
 //			me.release(tenv);
 			me = null;
+			extendedGraph = null;
+			domainVariables = null;
+			siblingDomains = null;
+			witnesses = null;
+			parentWitnesses = null;
+			parentDomains = null;
 			// tenv.push(this);
 //		}
 	}
@@ -805,7 +941,7 @@ public class DFSCode<NodeType, EdgeType> extends
 		this.first = first;
 		this.last = last;
 		this.me=me;
-		setLevel(me.getEdgeCount() - 1);
+		setLevel(getGraph().getEdgeCount() - 1);
 		store(true);
 		return this;
 	}
@@ -822,9 +958,37 @@ public class DFSCode<NodeType, EdgeType> extends
 
 	public HPListGraph<NodeType, EdgeType> getHPlistGraph()
 	{
+		if(me==null && extendedGraph!=null)
+		{
+			me = extendedGraph.toListGraph();
+			extendedGraph = null;
+		}
 		return me; 
 	}
 	
+	//ALE - the pattern as a query of the CSP (the labels are Integers, the edge labels are read as numbers)
+	@SuppressWarnings("unchecked")
+	private Query getQuery()
+	{
+		return new Query((HPListGraph<Integer, Double>)getHPlistGraph());
+	}
+	
+	//ALE - identity of the pattern, also computed from the graph that is not built yet
+	public PatternKey getPatternKey()
+	{
+		if(patternKey==null)
+			patternKey = PatternKey.of(getGraph());
+		return patternKey;
+	}
+	
+	//ALE - the graph without building it, enough for the canonical check
+	private HPGraph<NodeType, EdgeType> getGraph()
+	{
+		if(me==null && extendedGraph!=null)
+			return extendedGraph;
+		return me;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -832,7 +996,7 @@ public class DFSCode<NodeType, EdgeType> extends
 	 */
 	@Override
 	public String toString() {
-		return DFScodeSerializer.serialize(me);
+		return DFScodeSerializer.serialize(getHPlistGraph());
 	}
 	
 	//ALE
@@ -871,21 +1035,23 @@ public class DFSCode<NodeType, EdgeType> extends
 				//ALE nodes are in order
 				Variable a = currentVariables[node1];
 				Variable b = currentVariables[node2];
-				HashMap<Integer, myNode> pool = b.getList();
-				for (Entry<Integer, myNode> entry : a.getList().entrySet())
+				NodeSet pool = b.getList();
+				for (myNode node : a.getList())
 				{
 					//ALE children of this individual node
 					//HashMap<Integer, ArrayList<MyPair<Integer, Double>>> children = entry.getValue().getReachableWithNodes();
-					Set<Integer> childrenIDs = entry.getValue().getChildrenIDs();
+					Set<Integer> childrenIDs = node.getChildrenIDs();
 					
 					//System.out.println("Node " + entry.getKey() + " has children " + childrenIDs);
 					
 					//ALE do intersection
-					Set<Integer> nodeBIDs = pool.keySet();
-					//System.out.println("Pool is " + nodeBIDs);
-					childrenIDs.retainAll(nodeBIDs);
+					for (Iterator<Integer> it = childrenIDs.iterator(); it.hasNext();) 
+					{
+						if(!pool.contains(it.next()))
+							it.remove();
+					}
 					
-					System.out.println(entry.getValue().getID() + " -> " + childrenIDs);
+					System.out.println(node.getID() + " -> " + childrenIDs);
 					 
 				}
 				
@@ -898,18 +1064,21 @@ public class DFSCode<NodeType, EdgeType> extends
 				//ALE nodes are in order
 				Variable a = currentVariables[node2];
 				Variable b = currentVariables[node1];
-				HashMap<Integer, myNode> pool = b.getList();
-				for (Entry<Integer, myNode> entry : a.getList().entrySet())
+				NodeSet pool = b.getList();
+				for (myNode node : a.getList())
 				{
 					//ALE children of this individual node
 					//HashMap<Integer, ArrayList<MyPair<Integer, Double>>> children = entry.getValue().getReachableWithNodes();
-					Set<Integer> childrenIDs = entry.getValue().getReachableWithNodes().keySet();
+					Set<Integer> childrenIDs = node.getChildrenIDs();
 					
 					//ALE do intersection
-					Set<Integer> nodeBIDs = pool.keySet();
-					childrenIDs.retainAll(nodeBIDs);
+					for (Iterator<Integer> it = childrenIDs.iterator(); it.hasNext();) 
+					{
+						if(!pool.contains(it.next()))
+							it.remove();
+					}
 					
-					System.out.println(entry.getValue().getID() + " -> " + childrenIDs);
+					System.out.println(node.getID() + " -> " + childrenIDs);
 					 
 				}
 			}
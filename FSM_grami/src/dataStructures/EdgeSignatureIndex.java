@@ -0,0 +1,202 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ALE - number of distinct source and target nodes of every edge signature (labelA, edgeLabel, labelB), in an open addressing 
+ * table keyed by the signature packed in a long. The counts are taken once from the adjacency of the loaded graph: every 
+ * (node, label, edge label) group is a distinct source (or target) of one signature.
+ * The signatures below the current freqThreshold are hidden, so moving between thresholds only changes the threshold.
+ */
+public class EdgeSignatureIndex 
+{
+	private static final int LABEL_BITS = 24;
+	private static final int EDGE_LABEL_BITS = 16;
+	private static final long EMPTY = -1;
+	
+	private final CSRAdjacency adjacency;
+	private long[] keys;
+	private int[] numberOfSources;
+	private int[] numberOfTargets;
+	private int size = 0;
+	private int freqThreshold = 0;
+	
+	public EdgeSignatureIndex(CSRAdjacency adjacency, int[] nodeLabels)
+	{
+		this.adjacency = adjacency;
+		allocate(16);
+		for (int node = 0; node < nodeLabels.length; node++) 
+		{
+			for (int g = adjacency.getFirstGroup(CSRAdjacency.OUT, node); g < adjacency.getLastGroup(CSRAdjacency.OUT, node); g++) 
+			{
+				long key = pack(nodeLabels[node], adjacency.getGroupEdgeLabelIndex(CSRAdjacency.OUT, g), adjacency.getGroupLabel(CSRAdjacency.OUT, g));
+				int slot = slotFor(key); //may grow the table
+				numberOfSources[slot]++;
+			}
+			for (int g = adjacency.getFirstGroup(CSRAdjacency.IN, node); g < adjacency.getLastGroup(CSRAdjacency.IN, node); g++) 
+			{
+				long key = pack(adjacency.getGroupLabel(CSRAdjacency.IN, g), adjacency.getGroupEdgeLabelIndex(CSRAdjacency.IN, g), nodeLabels[node]);
+				int slot = slotFor(key); //may grow the table
+				numberOfTargets[slot]++;
+			}
+		}
+	}
+	
+	private EdgeSignatureIndex(CSRAdjacency adjacency)
+	{
+		this.adjacency = adjacency;
+	}
+	
+	//ALE - the table as it is, for a graph snapshot (the threshold is not saved)
+	public void write(GraphSnapshot.Writer out) throws IOException
+	{
+		out.writeInt(size);
+		out.writeLongs(keys);
+		out.writeInts(numberOfSources);
+		out.writeInts(numberOfTargets);
+	}
+	
+	public static EdgeSignatureIndex read(GraphSnapshot.Reader in, CSRAdjacency adjacency) throws IOException
+	{
+		EdgeSignatureIndex index = new EdgeSignatureIndex(adjacency);
+		index.size = in.readInt();
+		index.keys = in.readLongs();
+		index.numberOfSources = in.readInts();
+		index.numberOfTargets = in.readInts();
+		return index;
+	}
+	
+	private static long pack(int labelA, int edgeLabelIndex, int labelB)
+	{
+		if(labelA>>>LABEL_BITS!=0 || labelB>>>LABEL_BITS!=0 || edgeLabelIndex>>>EDGE_LABEL_BITS!=0)
+			throw new IllegalArgumentException("Too many node or edge labels for the edge signature index");
+		return (((long)labelA)<<(LABEL_BITS+EDGE_LABEL_BITS)) | (((long)edgeLabelIndex)<<LABEL_BITS) | labelB;
+	}
+	
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		numberOfSources = new int[capacity];
+		numberOfTargets = new int[capacity];
+	}
+	
+	private int indexOf(long key)
+	{
+		int mask = keys.length-1;
+		int i = (int)((key*0x9E3779B97F4A7C15L)>>>32) & mask;
+		while(keys[i]!=EMPTY && keys[i]!=key)
+			i = (i+1) & mask;
+		return i;
+	}
+	
+	//slot of key, added if it is not there yet
+	private int slotFor(long key)
+	{
+		int i = indexOf(key);
+		if(keys[i]!=EMPTY)
+			return i;
+		if((size+1)*2>keys.length)
+		{
+			long[] oldKeys = keys;
+			int[] oldSources = numberOfSources;
+			int[] oldTargets = numberOfTargets;
+			allocate(keys.length*2);
+			for (int j = 0; j < oldKeys.length; j++) 
+			{
+				if(oldKeys[j]==EMPTY)
+					continue;
+				int k = indexOf(oldKeys[j]);
+				keys[k] = oldKeys[j];
+				numberOfSources[k] = oldSources[j];
+				numberOfTargets[k] = oldTargets[j];
+			}
+			i = indexOf(key);
+		}
+		keys[i] = key;
+		size++;
+		return i;
+	}
+	
+	private int getFrequency(int slot)
+	{
+		int freq = Math.min(numberOfSources[slot], numberOfTargets[slot]);
+		if(freq<freqThreshold)
+			return 0;
+		return freq;
+	}
+	
+	/**
+	 * MNI support of the single edge labelA -edgeLabel-> labelB, 0 if it is below the current freqThreshold
+	 */
+	public int getFrequency(int labelA, double edgeLabel, int labelB)
+	{
+		int edgeLabelIndex = adjacency.getEdgeLabelIndex(edgeLabel);
+		if(edgeLabelIndex<0)
+			return 0;
+		int i = indexOf(pack(labelA, edgeLabelIndex, labelB));
+		if(keys[i]==EMPTY)
+			return 0;
+		return getFrequency(i);
+	}
+	
+	public int getMaxFrequency()
+	{
+		int max = 0;
+		for (int i = 0; i < keys.length; i++) 
+		{
+			if(keys[i]!=EMPTY)
+				max = Math.max(max, getFrequency(i));
+		}
+		return max;
+	}
+	
+	//frequencies of the visible signatures
+	public Set<Integer> getAllFrequencies()
+	{
+		Set<Integer> frequencies = new TreeSet<Integer>();
+		for (int i = 0; i < keys.length; i++) 
+		{
+			if(keys[i]!=EMPTY && getFrequency(i)>0)
+				frequencies.add(getFrequency(i));
+		}
+		return frequencies;
+	}
+	
+	public void setFreqThreshold(int freqThreshold)
+	{
+		this.freqThreshold = freqThreshold;
+	}
+	
+	public int getFreqThreshold()
+	{
+		return freqThreshold;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+}
@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -66,6 +67,10 @@ public class Graph
 	private ArrayList<Double> freqEdgeLabels;
 	
 	private int freqThreshold;
+	private boolean isPruned = false;
+	
+	private CSRAdjacency adjacency; //ALE neighbors of every node, built once after loading the edges
+	private HashMap<Integer, NodeSet> nodeSetsByLabel; //ALE nodesByLabel as bitsets, copied to start the CSP domains
 	public int getFreqThreshold() {
 		return freqThreshold;
 	}
@@ -93,12 +98,8 @@ public class Graph
 		
 		freqThreshold=freqThresh;
 		
-		if(StaticData.hashedEdges!=null)
-		{
-			StaticData.hashedEdges = null;
-			System.out.println(StaticData.hashedEdges.hashCode());//throw exception if more than one graph was created
-		}
-		StaticData.hashedEdges = new HashMap<String, HashMap<Integer, Integer>[]>();
+		if(StaticData.edgeSignatures!=null)
+			throw new IllegalStateException("Only one graph can be created"); //the edge signatures are static
 	}
 	
 	//ALE - to initialize graph without establishing a freqThreshold
@@ -120,17 +121,7 @@ public class Graph
 		
 		invertedNodeLabels = new HashMap<Integer, String>();
 		
-		//IMPORTANT CHANGE HERE
-		if(StaticData.hashedEdges!=null)
-		{
-			//avoid creating more than one graph in the form of hashedEdges map.
-			//if this is for a new freqThreshold, just reset hashedEdges
-			StaticData.resetHashedEdges();
-			//StaticData.hashedEdges = null;
-			//System.out.println(StaticData.hashedEdges.hashCode());//throw exception if more than one graph was created
-		}
-		else
-			StaticData.hashedEdges = new HashMap<String, HashMap<Integer, Integer>[]>();
+		//ALE the edge signatures (StaticData.edgeSignatures) are indexed again when this graph is loaded
 	}
 	
 	//ALE
@@ -220,6 +211,8 @@ public class Graph
 			
 		}
 		
+		buildAdjacency();
+		
 		bin.close();		
 	}
 	
@@ -329,26 +322,10 @@ public class Graph
 			sortedFreqLabels.add(sortedFreqLabelsWithFreq.get(j).x);
 		}
 		
-		//prune frequent hashedEdges
-		Vector toBeDeleted = new Vector();
-		Set<String> s = StaticData.hashedEdges.keySet();
-		for (Iterator<String>  it= s.iterator(); it.hasNext();) 
-		{
-			String sig =  it.next();
-			HashMap[] hm = StaticData.hashedEdges.get(sig);
-			if(hm[0].size()<freqThreshold || hm[1].size()<freqThreshold)
-			{
-				toBeDeleted.addElement(sig);
-			}
-			else
-				;
-		}
-		Enumeration<String> enum1 = toBeDeleted.elements();
-		while(enum1.hasMoreElements())
-		{
-			String sig = enum1.nextElement();
-			StaticData.hashedEdges.remove(sig);
-		}
+		buildAdjacency();
+		
+		//prune frequent edge signatures
+		StaticData.edgeSignatures.setFreqThreshold(freqThreshold);
 		
 		rows.close();		
 	}
@@ -426,140 +403,175 @@ public class Graph
 			} while((line = rows.readLine()) !=null && (line.charAt(0) == 'e'));
 		}
 		
-		//set originalHashedEdges
-		StaticData.setOriginalHashedEdges();
-		
 		rows.close();		
 	}
 	
 	//ALE - separate file reading and initial pruning
+	//the node label is "indegree-label", so the in-degrees are counted from the parsed edges before the nodes are added
 	public void loadFromFile_Alejandra(String fileName) throws Exception
-	{		
-		ArrayList<MyPair> nodesInDegree = new ArrayList<MyPair>();
-		ArrayList<MyEdge> edgesToAdd = new ArrayList<MyEdge>();
-		String text = "";
-		final BufferedReader rows = new BufferedReader(new FileReader(new File(fileName)));
-		
-		// read graph from rows
-		// nodes
-		int counter = 0;
-		int numberOfNodes=0; //ALE, we use this as the original ID for our nodes. It starts at 0 and is sequential
-		String line;
-		String tempLine;
-		rows.readLine();
-		while ((line = rows.readLine()) !=null && (line.charAt(0) == 'v')) {
-			final String[] parts = line.split("\\s+");
-			final int index = Integer.parseInt(parts[1]);
-			
-			String nodeLabel = parts[2];
-			
-			nodesInDegree.add(new MyPair(nodeLabel, 0)); //add node to this list, so we can start keeping track of its indegree
-			
-			//final int label = Integer.parseInt(parts[2]);
-			if (index != counter) {
-				System.out.println(index+" "+counter);
-				throw new ParseException("The node list is not sorted", counter);
+	{
+		LGFileParser parser = new LGFileParser(fileName);
+		parser.parse();
+		int numberOfNodes = parser.getNumberOfNodes(); //ALE, we use the position of a node as its ID. It starts at 0 and is sequential
+		int[] labels = parser.getNodeLabels();
+		String[] labelNames = parser.getLabels();
+		int numberOfEdges = parser.getNumberOfEdges();
+		int[] sources = parser.getSources(); //ALE, these are the parent nodes
+		int[] targets = parser.getTargets(); //ALE, these are the child nodes
+		
+		int[] inDegree = new int[numberOfNodes];
+		for (int e = 0; e < numberOfEdges; e++) 
+			inDegree[targets[e]]++;
+		
+		//go through vertex list, the string of a label is only built the first time its (indegree, label) is seen
+		HashMap<Long, Integer> labelsByInDegree = new HashMap<Long, Integer>();
+		for(int i = 0; i < numberOfNodes; ++i)
+		{
+			Long key = (((long)inDegree[i])<<32) | labels[i];
+			Integer label = labelsByInDegree.get(key);
+			if(label==null)
+			{
+				//create label
+				String nodeLabel = inDegree[i] + "-" + labelNames[labels[i]];
+				if(!nodeLabels.containsKey(nodeLabel))
+				{
+					label = labelIndex;
+					nodeLabels.put(nodeLabel, labelIndex);
+					invertedNodeLabels.put(labelIndex, nodeLabel);
+					labelIndex++;
+				}
+				else
+					label = nodeLabels.get(nodeLabel);
+				labelsByInDegree.put(key, label);
 			}
-			
-			numberOfNodes++;
-			counter++;
+			addLoadedNode(i, label);
 		}
 		nodeCount=numberOfNodes;
-		tempLine = line;
-		
-		// edges
-		
-		//use the first edge line
-		if(tempLine.charAt(0)=='e')
-			line = tempLine;
-		else
-			line = rows.readLine();
 		
-		if(line!=null)
+		//go through edge list
+		for(int e = 0; e < numberOfEdges; ++e)
 		{
-			do
-			{
-				final String[] parts = line.split("\\s+");
-				final int index1 = Integer.parseInt(parts[1]); //ALE, this is the parent node
-				final int index2 = Integer.parseInt(parts[2]); //ALE, this is the child node
-				//final double label = Double.parseDouble(parts[3]);
-				
-				nodesInDegree.get(index2).addToInDegree(); //update count of incoming edges for the child node
-				edgesToAdd.add(new MyEdge(index1, index2));
-				//addEdge(index1, index2, label); //ALE, this populates edgeLabelsWithFreq
-			} while((line = rows.readLine()) !=null && (line.charAt(0) == 'e'));
+			addEdge(sources[e], targets[e], 0); //ALE, this populates edgeLabelsWithFreq... params: nodeA, nodeB, label
 		}
 		
-		//go through vertex list
-		for(int i = 0; i < nodesInDegree.size(); ++i)
+		buildAdjacency();
+	}
+	
+	//ALE - node i of a loaded graph, i is its position in the file
+	private void addLoadedNode(int i, int label)
+	{
+		addNode(label); //ALE, this adds the node into m_matrix, which is an HPListGraph object
+		myNode n = new myNode(i, label);
+		nodes.add(n);
+		HashMap<Integer,myNode> tmp = nodesByLabel.get(label);
+		if(tmp==null)  //ALE, if this is the first time we read this label, create a map for it
 		{
-			//create label
-			String nodeLabel = nodesInDegree.get(i).getInDegree() + "-" + nodesInDegree.get(i).getLabel();
-			int label = -1;
-			if(!nodeLabels.containsKey(nodeLabel))
-            {
-            	label = labelIndex;
-            	nodeLabels.put(nodeLabel, labelIndex);
-            	invertedNodeLabels.put(labelIndex, nodeLabel);
-            	labelIndex++;
-            }
-            else
-            	label = nodeLabels.get(nodeLabel);
-			
-			addNode(label); //ALE, this adds the node into m_matrix, which is an HPListGraph object
-			//we can use i safely as our node ID since we read the vertex info in order and we inserted it in that same order into the nodesIndegree list
-			myNode n = new myNode(i, label);//myNode n = new myNode(numberOfNodes, label);
-			nodes.add(n);
-			HashMap<Integer,myNode> tmp = nodesByLabel.get(label);
-			if(tmp==null)  //ALE, if this is the first time we read this label, create a map for it
+			tmp = new HashMap<Integer,myNode>();
+			nodesByLabel.put(label, tmp);
+		}
+
+		tmp.put(n.getID(), n); //ALE, this will change the value already inserted in nodesByLabel, as they are inserted by reference.
+	}
+	
+	//ALE - saves the loaded graph (label dictionary, nodes, edges, adjacency and edge signatures) so it can be loaded 
+	//again with loadFromSnapshot, without parsing the .lg file
+	public void writeSnapshot(String fileName) throws IOException
+	{
+		GraphSnapshot.Writer out = new GraphSnapshot.Writer(fileName);
+		try
+		{
+			out.writeInt(invertedNodeLabels.size());
+			for (int label = 0; label < invertedNodeLabels.size(); label++) 
+				out.writeString(invertedNodeLabels.get(label));
+			out.writeInts(getNodeLabelArray());
+			int numberOfEdges = m_matrix.getEdgeCount();
+			int[] sources = new int[numberOfEdges];
+			int[] targets = new int[numberOfEdges];
+			double[] edgeLabels = new double[numberOfEdges];
+			getEdges(sources, targets, edgeLabels);
+			out.writeInts(sources);
+			out.writeInts(targets);
+			out.writeDoubles(edgeLabels);
+			adjacency.write(out);
+			StaticData.edgeSignatures.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+		System.out.println("ALE graph snapshot written to "+fileName);
+	}
+	
+	//ALE - loads a graph saved by writeSnapshot
+	public void loadFromSnapshot(String fileName) throws IOException
+	{
+		GraphSnapshot.Reader in = new GraphSnapshot.Reader(fileName);
+		try
+		{
+			int numberOfLabels = in.readInt();
+			for (int label = 0; label < numberOfLabels; label++) 
 			{
-				tmp = new HashMap<Integer,myNode>();
-				nodesByLabel.put(label, tmp);
+				String nodeLabel = in.readString();
+				nodeLabels.put(nodeLabel, label);
+				invertedNodeLabels.put(label, nodeLabel);
 			}
-
-			tmp.put(n.getID(), n); //ALE, this will change the value already inserted in nodesByLabel, as they are inserted by reference.
+			labelIndex = numberOfLabels;
+			
+			int[] labels = in.readInts();
+			for (int i = 0; i < labels.length; i++) 
+				addLoadedNode(i, labels[i]);
+			nodeCount = labels.length;
+			
+			int[] sources = in.readInts();
+			int[] targets = in.readInts();
+			double[] edgeLabels = in.readDoubles();
+			for (int e = 0; e < sources.length; e++) 
+				addEdge(sources[e], targets[e], edgeLabels[e]);
 			
+			adjacency = CSRAdjacency.read(in);
+			for (int i = 0; i < nodes.size(); i++) 
+				nodes.get(i).setAdjacency(adjacency);
+			StaticData.edgeSignatures = EdgeSignatureIndex.read(in, adjacency);
+			buildNodeSets();
 		}
-		
-		//go through edge list
-		for(int i = 0; i < edgesToAdd.size(); ++i)
+		finally
 		{
-			addEdge(edgesToAdd.get(i).getA(), edgesToAdd.get(i).getB(), 0); //ALE, this populates edgeLabelsWithFreq... params: nodeA, nodeB, label
+			in.close();
 		}
-		
-		//set originalHashedEdges
-		StaticData.setOriginalHashedEdges();
-		
-		rows.close();		
 	}
 	
 	//ALE separate file reading and initial pruning
+	//the graph is loaded once and freqThreshold is expected to go down between calls, so the frequent elements only grow:
+	//we add back the labels and edge labels that became frequent instead of rebuilding everything
 	public void pruneNonfrequentElements(int freqThreshold)
 	{
+		if(!isPruned || freqThreshold > this.freqThreshold)
+		{
+			//first call (or a higher threshold), start from an empty set of frequent elements
+			freqNodesByLabel= new HashMap<Integer, HashMap<Integer,myNode>>();
+			freqEdgeLabels = new ArrayList<Double>();
+			sortedFreqLabelsWithFreq = new ArrayList<Point>();
+			isPruned = true;
+		}
+		
 		//set the freqThreshold
 		this.freqThreshold = freqThreshold;
 		
-		//reset the containers for frequent elements
-		freqNodesByLabel= new HashMap<Integer, HashMap<Integer,myNode>>();
-		freqEdgeLabels = new ArrayList<Double>();
-		sortedFreqLabels= new ArrayList<Integer>();
-		sortedFreqLabelsWithFreq = new ArrayList<Point>();
-		
-		//prune infrequent edge labels
+		//add back the edge labels that became frequent
 		for (Iterator<  java.util.Map.Entry< Double,Integer> >  it= this.edgeLabelsWithFreq.entrySet().iterator(); it.hasNext();) 
 		{
 			java.util.Map.Entry< Double,Integer > ar =  it.next();			
-			if(ar.getValue().doubleValue()>=freqThreshold)
+			if(ar.getValue().doubleValue()>=freqThreshold && !freqEdgeLabels.contains(ar.getKey()))
 			{
 				this.freqEdgeLabels.add(ar.getKey());
 			}
 		}
 		
-		//now prune the infrequent nodes
+		//add back the nodes whose label became frequent
 		for (Iterator<  java.util.Map.Entry< Integer, HashMap<Integer,myNode> > >  it= nodesByLabel.entrySet().iterator(); it.hasNext();) 
 		{
 			java.util.Map.Entry< Integer, HashMap<Integer,myNode> > ar =  it.next();			
-			if(ar.getValue().size()>=freqThreshold)
+			if(ar.getValue().size()>=freqThreshold && !freqNodesByLabel.containsKey(ar.getKey()))
 			{
 				sortedFreqLabelsWithFreq.add(new Point(ar.getKey(),ar.getValue().size())); //this is not sorted yet. It's just the frequent labels
 				freqNodesByLabel.put(ar.getKey(), ar.getValue());
@@ -570,32 +582,14 @@ public class Graph
 		Collections.sort(sortedFreqLabelsWithFreq, new freqComparator());
 		
 		//we populate sortedFreqLabels with sortedFreqLabelsWithFreq 
+		sortedFreqLabels= new ArrayList<Integer>();
 		for (int j = 0; j < sortedFreqLabelsWithFreq.size(); j++) 
 		{
 			sortedFreqLabels.add(sortedFreqLabelsWithFreq.get(j).x);
 		}
 		
-		//prune frequent hashedEdges
-		StaticData.resetHashedEdges(); //bring it back to how it was when the file was first read
-		Vector toBeDeleted = new Vector();
-		Set<String> s = StaticData.hashedEdges.keySet();
-		for (Iterator<String>  it= s.iterator(); it.hasNext();) 
-		{
-			String sig =  it.next();
-			HashMap[] hm = StaticData.hashedEdges.get(sig);
-			if(hm[0].size()<freqThreshold || hm[1].size()<freqThreshold)
-			{
-				toBeDeleted.addElement(sig);
-			}
-			else
-				;
-		}
-		Enumeration<String> enum1 = toBeDeleted.elements();
-		while(enum1.hasMoreElements())
-		{
-			String sig = enum1.nextElement();
-			StaticData.hashedEdges.remove(sig);
-		}
+		//the edge signatures that became frequent are visible again
+		StaticData.edgeSignatures.setFreqThreshold(freqThreshold);
 	}
 	
 	//ALE
@@ -641,45 +635,108 @@ public class Graph
 	}
 	
 	//1 hop distance for the shortest paths
+	//ALE the neighbors are already in the adjacency, only the ones with a frequent label are made visible
 	public void setShortestPaths_1hop()
 	{
-		for (Iterator<  java.util.Map.Entry< Integer, HashMap<Integer,myNode> > >  it= freqNodesByLabel.entrySet().iterator(); it.hasNext();) 
+		adjacency.setActiveLabels(freqNodesByLabel.keySet());
+		System.out.println("ALE populated freq children and parents for each node, DONE!");
+	}
+	
+	//ALE compressed adjacency of the loaded edges, shared by all the nodes, and the frequency of each edge signature
+	private void buildAdjacency()
+	{
+		int numberOfEdges = m_matrix.getEdgeCount();
+		int[] nodeLabels = getNodeLabelArray();
+		int[] sources = new int[numberOfEdges];
+		int[] targets = new int[numberOfEdges];
+		double[] edgeLabels = new double[numberOfEdges];
+		getEdges(sources, targets, edgeLabels);
+		adjacency = new CSRAdjacency(nodeLabels, numberOfEdges, sources, targets, edgeLabels);
+		for (int i = 0; i < nodes.size(); i++) 
+			nodes.get(i).setAdjacency(adjacency);
+		StaticData.edgeSignatures = new EdgeSignatureIndex(adjacency, nodeLabels);
+		buildNodeSets();
+	}
+	
+	private void buildNodeSets()
+	{
+		nodeSetsByLabel = new HashMap<Integer, NodeSet>();
+		for (int i = 0; i < nodes.size(); i++) 
 		{
-			java.util.Map.Entry< Integer, HashMap<Integer,myNode> > ar =  it.next();
-			
-			HashMap<Integer,myNode> freqNodes= ar.getValue(); //ALE these are the nodes that have this label
-			int counter=0;
-			//ALE we are going through each of these nodes and printing the count, but also setting reachable nodes.
-			for (Iterator<myNode> iterator = freqNodes.values().iterator(); iterator.hasNext();) 
+			NodeSet set = nodeSetsByLabel.get(nodes.get(i).getLabel());
+			if(set==null)
 			{
-				myNode node =  iterator.next();
-				//ALE IMPORTANT with changing freqs: reset node neighbors (reachable nodes) every time we change freqThreshold as we should not include non frequent nodes in the nodes' neighbors list
-				//node.resetNodeDetails();
-				//System.out.println(counter++);
-				node.setReachableNodes_1hop(this, freqNodesByLabel); //ALE we essentially populate the children and parents lists for each node object
+				set = new NodeSet(nodes);
+				nodeSetsByLabel.put(nodes.get(i).getLabel(), set);
 			}
+			set.add(i);
 		}
-		System.out.println("ALE populated freq children and parents for each node, DONE!");
 	}
 	
-	public void setShortestPaths(DijkstraEngine dj)
+	//ALE - the nodes with this label (do not modify it, copy it), null if there is none
+	public NodeSet getNodeSetByLabel(int label)
 	{
-		for (Iterator<  java.util.Map.Entry< Integer, HashMap<Integer,myNode> > >  it= freqNodesByLabel.entrySet().iterator(); it.hasNext();) 
+		return nodeSetsByLabel.get(label);
+	}
+	
+	private int[] getNodeLabelArray()
+	{
+		int[] nodeLabels = new int[nodes.size()];
+		for (int i = 0; i < nodeLabels.length; i++) 
+			nodeLabels[i] = nodes.get(i).getLabel();
+		return nodeLabels;
+	}
+	
+	//ALE - identifies the loaded graph (node labels and edges), for the files that are only valid for the same graph
+	public long getFingerprint()
+	{
+		int[] nodeLabels = getNodeLabelArray();
+		int numberOfEdges = m_matrix.getEdgeCount();
+		int[] sources = new int[numberOfEdges];
+		int[] targets = new int[numberOfEdges];
+		double[] edgeLabels = new double[numberOfEdges];
+		getEdges(sources, targets, edgeLabels);
+		long hash = mix(nodeLabels.length, numberOfEdges);
+		for (int i = 0; i < nodeLabels.length; i++) 
+			hash = mix(hash, nodeLabels[i]);
+		for (int e = 0; e < numberOfEdges; e++) 
 		{
-			java.util.Map.Entry< Integer, HashMap<Integer,myNode> > ar =  it.next();
-			
-			HashMap<Integer,myNode> freqNodes= ar.getValue();
-			int counter=0;
-			for (Iterator<myNode> iterator = freqNodes.values().iterator(); iterator.hasNext();) 
+			hash = mix(hash, ((long)sources[e]<<32)|(targets[e]&0xFFFFFFFFL));
+			hash = mix(hash, Double.doubleToLongBits(edgeLabels[e]));
+		}
+		return hash;
+	}
+	
+	private static long mix(long hash, long value)
+	{
+		long h = (hash^value)*0x9E3779B97F4A7C15L;
+		return h^(h>>>29);
+	}
+	
+	//source, target and label of every edge of m_matrix
+	private void getEdges(int[] sources, int[] targets, double[] edgeLabels)
+	{
+		for (int e = 0; e < sources.length; e++) 
+		{
+			if(m_matrix.getDirection(e)>=0)
+			{
+				sources[e] = m_matrix.getNodeA(e);
+				targets[e] = m_matrix.getNodeB(e);
+			}
+			else
 			{
-				myNode node =  iterator.next();
-				dj.execute(node.getID(),null);
-				System.out.println(counter++);
-				node.setReachableNodes(dj, freqNodesByLabel, this.getListGraph());
+				sources[e] = m_matrix.getNodeB(e);
+				targets[e] = m_matrix.getNodeA(e);
 			}
+			edgeLabels[e] = m_matrix.getEdgeLabel(e);
 		}
 	}
 	
+	public CSRAdjacency getAdjacency()
+	{
+		return adjacency;
+	}
+	
 	public myNode getNode(int ID)
 	{
 		return nodes.get(ID);
@@ -716,28 +773,7 @@ public class Graph
 		else
 			edgeLabelsWithFreq.put(edgeLabel, I.intValue()+1); //if edge existed, update freq
 		
-		//add edge frequency
-		int labelA = nodes.get(nodeA).getLabel();
-		int labelB = nodes.get(nodeB).getLabel();
-		
-		String hn;
-		
-		hn = labelA+"_"+edgeLabel+"_"+labelB; //this is edge ID
-		
-		HashMap<Integer,Integer>[] hm = StaticData.hashedEdges.get(hn); 
-		if(hm==null)
-		{
-			hm = new HashMap[2];
-			hm[0] = new HashMap();
-			hm[1] = new HashMap();
-					
-			StaticData.hashedEdges.put(hn, hm);
-		}
-		else
-		{}
-		hm[0].put(nodeA, nodeA);
-		hm[1].put(nodeB, nodeB);
-		
+		//ALE the frequency of the edge signature is counted by buildAdjacency, once all the edges are loaded
 		return m_matrix.addEdgeIndex(nodeA, nodeB, edgeLabel, 1);
 	}
 	
@@ -0,0 +1,262 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ALE - binary file format of a loaded graph (see Graph.writeSnapshot and Graph.loadFromSnapshot): a header followed by 
+ * ints, longs, doubles, strings and arrays of them. Loading a snapshot maps the file and copies whole arrays at once, 
+ * instead of parsing the .lg file and building the adjacency again.
+ */
+public class GraphSnapshot 
+{
+	private static final long MAGIC = 0x4752614D69534E50L; //"GRaMiSNP"
+	private static final int VERSION = 1;
+	private static final int WINDOW_SIZE = 1<<28; //a mapping holds at most 2GB, so the file is mapped in windows
+	
+	//true if the file starts with the header of a snapshot
+	public static boolean isSnapshot(String fileName) throws IOException
+	{
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		try
+		{
+			ByteBuffer header = ByteBuffer.allocate(8);
+			while(header.hasRemaining() && channel.read(header)>=0);
+			return !header.hasRemaining() && header.getLong(0)==MAGIC;
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+	
+	public static class Writer implements Closeable
+	{
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1<<20);
+		
+		public Writer(String fileName) throws IOException
+		{
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			writeLong(MAGIC);
+			writeInt(VERSION);
+		}
+		
+		private void ensure(int bytes) throws IOException
+		{
+			if(buffer.remaining()<bytes)
+				flush();
+		}
+		
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+		
+		public void writeInt(int value) throws IOException
+		{
+			ensure(4);
+			buffer.putInt(value);
+		}
+		
+		public void writeLong(long value) throws IOException
+		{
+			ensure(8);
+			buffer.putLong(value);
+		}
+		
+		public void writeDouble(double value) throws IOException
+		{
+			ensure(8);
+			buffer.putDouble(value);
+		}
+		
+		public void writeString(String value) throws IOException
+		{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeInt(bytes.length);
+			for (int i = 0; i < bytes.length; i++) 
+			{
+				ensure(1);
+				buffer.put(bytes[i]);
+			}
+		}
+		
+		//the length, then the values
+		public void writeInts(int[] values) throws IOException
+		{
+			writeInt(values.length);
+			for (int i = 0; i < values.length; i++) 
+				writeInt(values[i]);
+		}
+		
+		public void writeLongs(long[] values) throws IOException
+		{
+			writeInt(values.length);
+			for (int i = 0; i < values.length; i++) 
+				writeLong(values[i]);
+		}
+		
+		public void writeDoubles(double[] values) throws IOException
+		{
+			writeInt(values.length);
+			for (int i = 0; i < values.length; i++) 
+				writeDouble(values[i]);
+		}
+		
+		public void close() throws IOException
+		{
+			try
+			{
+				flush();
+			}
+			finally
+			{
+				channel.close();
+			}
+		}
+	}
+	
+	public static class Reader implements Closeable
+	{
+		private final FileChannel channel;
+		private final long fileSize;
+		private ByteBuffer window = ByteBuffer.allocate(0);
+		private long windowStart = 0;
+		
+		public Reader(String fileName) throws IOException
+		{
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			fileSize = channel.size();
+			if(fileSize<12 || readLong()!=MAGIC)
+			{
+				channel.close();
+				throw new IOException(fileName+" is not a graph snapshot");
+			}
+			int version = readInt();
+			if(version!=VERSION)
+			{
+				channel.close();
+				throw new IOException(fileName+" is a graph snapshot of version "+version+", expected "+VERSION);
+			}
+		}
+		
+		//maps the next part of the file if the current window has less than the given bytes left
+		private void ensure(int bytes) throws IOException
+		{
+			if(window.remaining()>=bytes)
+				return;
+			long position = windowStart+window.position();
+			long size = Math.min(WINDOW_SIZE, fileSize-position);
+			if(size<bytes)
+				throw new EOFException("The graph snapshot is truncated");
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			windowStart = position;
+		}
+		
+		public int readInt() throws IOException
+		{
+			ensure(4);
+			return window.getInt();
+		}
+		
+		public long readLong() throws IOException
+		{
+			ensure(8);
+			return window.getLong();
+		}
+		
+		public double readDouble() throws IOException
+		{
+			ensure(8);
+			return window.getDouble();
+		}
+		
+		public String readString() throws IOException
+		{
+			byte[] bytes = new byte[readInt()];
+			ensure(bytes.length);
+			window.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		
+		public int[] readInts() throws IOException
+		{
+			int[] values = new int[readInt()];
+			int done = 0;
+			while(done < values.length)
+			{
+				ensure(4);
+				int n = Math.min(values.length-done, window.remaining()/4);
+				window.asIntBuffer().get(values, done, n);
+				window.position(window.position()+n*4);
+				done += n;
+			}
+			return values;
+		}
+		
+		public long[] readLongs() throws IOException
+		{
+			long[] values = new long[readInt()];
+			int done = 0;
+			while(done < values.length)
+			{
+				ensure(8);
+				int n = Math.min(values.length-done, window.remaining()/8);
+				window.asLongBuffer().get(values, done, n);
+				window.position(window.position()+n*8);
+				done += n;
+			}
+			return values;
+		}
+		
+		public double[] readDoubles() throws IOException
+		{
+			double[] values = new double[readInt()];
+			int done = 0;
+			while(done < values.length)
+			{
+				ensure(8);
+				int n = Math.min(values.length-done, window.remaining()/8);
+				window.asDoubleBuffer().get(values, done, n);
+				window.position(window.position()+n*8);
+				done += n;
+			}
+			return values;
+		}
+		
+		public void close() throws IOException
+		{
+			window = null;
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,354 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * ALE - read only view of a pattern graph plus the one edge (and maybe one node) of a right most extension, 
+ * with the same node/edge indices and the same edge order as the graph GSpanEdge.addTo(base.clone()) would build. 
+ * So a child can be checked for being canonical without copying its parent, and toListGraph() only makes the copy 
+ * for the children that pass.
+ * The base graph must not have deleted nodes or edges (true for all the graphs of the search lattice) and must not change.
+ */
+public class HPExtendedGraph<NodeType, EdgeType> implements HPGraph<NodeType, EdgeType> 
+{
+	private static final long serialVersionUID = 1L;
+
+	private final HPListGraph<NodeType, EdgeType> base;
+	private final GSpanEdge<NodeType, EdgeType> edge;
+	
+	private final int newEdge;
+	private final int newNode;
+	private final NodeType newNodeLabel;
+	private final EdgeType edgeLabel;
+	
+	@SuppressWarnings("unchecked")
+	public HPExtendedGraph(HPListGraph<NodeType, EdgeType> base, GSpanEdge<NodeType, EdgeType> edge)
+	{
+		this.base=base;
+		this.edge=edge;
+		newEdge= base.getMaxEdgeIndex();
+		if(edge.getNodeA()==base.getNodeCount())
+		{
+			newNode= edge.getNodeA();
+			newNodeLabel= (NodeType)((Integer)edge.getThelabelA());
+		}
+		else if(edge.getNodeB()==base.getNodeCount())
+		{
+			newNode= edge.getNodeB();
+			newNodeLabel= (NodeType)((Integer)edge.getThelabelB());
+		}
+		else
+		{
+			newNode= NO_NODE;
+			newNodeLabel= null;
+		}
+		edgeLabel= (EdgeType)(edge.getEdgeLabel()+"");
+	}
+	
+	/**
+	 * @return a new HPListGraph with the base graph and the extension
+	 */
+	@SuppressWarnings("unchecked")
+	public HPListGraph<NodeType, EdgeType> toListGraph()
+	{
+		HPListGraph<NodeType, EdgeType> ng= (HPListGraph<NodeType, EdgeType>) base.clone();
+		edge.addTo(ng);
+		return ng;
+	}
+	
+	public HPGraph<NodeType, EdgeType> clone() 
+	{
+		return toListGraph();
+	}
+	
+	//the new edge is added to the end of the edge lists of its nodes (twice for a self edge)
+	private int getAddedDegree(int nodeIdx)
+	{
+		int added=0;
+		if(edge.getNodeA()==nodeIdx)
+			added++;
+		if(edge.getNodeB()==nodeIdx)
+			added++;
+		return added;
+	}
+	
+	private int getBaseDegree(int nodeIdx)
+	{
+		return nodeIdx==newNode ? 0 : base.getDegree(nodeIdx);
+	}
+
+	public int getDegree(int nodeIdx) 
+	{
+		return getBaseDegree(nodeIdx)+getAddedDegree(nodeIdx);
+	}
+
+	public int getInDegree(int nodeIdx) 
+	{
+		int degree= nodeIdx==newNode ? 0 : base.getInDegree(nodeIdx);
+		if(edge.getNodeA()==nodeIdx && edge.getDirection()==Edge.INCOMING)
+			degree++;
+		if(edge.getNodeB()==nodeIdx && -edge.getDirection()==Edge.INCOMING)
+			degree++;
+		return degree;
+	}
+
+	public int getOutDegree(int nodeIdx) 
+	{
+		int degree= nodeIdx==newNode ? 0 : base.getOutDegree(nodeIdx);
+		if(edge.getNodeA()==nodeIdx && edge.getDirection()==Edge.OUTGOING)
+			degree++;
+		if(edge.getNodeB()==nodeIdx && -edge.getDirection()==Edge.OUTGOING)
+			degree++;
+		return degree;
+	}
+
+	public int getNodeEdge(int nodeIdx, int i) 
+	{
+		int baseDegree= getBaseDegree(nodeIdx);
+		if(i<baseDegree)
+			return base.getNodeEdge(nodeIdx, i);
+		if(i<baseDegree+getAddedDegree(nodeIdx))
+			return newEdge;
+		throw new IndexOutOfBoundsException("node "+nodeIdx+" has no edge "+i);
+	}
+
+	public int getNodeNeigbour(int nodeIdx, int i) 
+	{
+		return getOtherNode(getNodeEdge(nodeIdx, i), nodeIdx);
+	}
+
+	public int getDirection(int edgeIdx) 
+	{
+		return edgeIdx==newEdge ? edge.getDirection() : base.getDirection(edgeIdx);
+	}
+
+	public int getDirection(int edgeIdx, int nodeIdx) 
+	{
+		if(edgeIdx!=newEdge)
+			return base.getDirection(edgeIdx, nodeIdx);
+		if(edge.getNodeA()==nodeIdx)
+			return edge.getDirection();
+		if(edge.getNodeB()==nodeIdx)
+			return -edge.getDirection();
+		throw new IllegalArgumentException("node index " + nodeIdx + " is invalid for the edge " + edgeIdx + "!");
+	}
+
+	public int getOtherNode(int edgeIdx, int nodeIdx) 
+	{
+		if(edgeIdx!=newEdge)
+			return base.getOtherNode(edgeIdx, nodeIdx);
+		if(edge.getNodeA()==nodeIdx)
+			return edge.getNodeB();
+		if(edge.getNodeB()==nodeIdx)
+			return edge.getNodeA();
+		throw new IllegalArgumentException("node index " + nodeIdx + " is invalid for the edge " + edgeIdx + "!");
+	}
+
+	public int getEdge(int nodeAIdx, int nodeBIdx) 
+	{
+		//the new edge is the last one of the lists, which HPListGraph looks at first
+		int na= edge.getNodeA();
+		int nb= edge.getNodeB();
+		int dir= edge.getDirection();
+		if((na == nodeAIdx && nb == nodeBIdx && dir != Edge.INCOMING) || (na == nodeBIdx && nb == nodeAIdx && dir != Edge.OUTGOING))
+			return newEdge;
+		if(nodeAIdx==newNode)
+			return NO_EDGE;
+		return base.getEdge(nodeAIdx, nodeBIdx);
+	}
+
+	public int getNodeA(int edgeIdx) 
+	{
+		return edgeIdx==newEdge ? edge.getNodeA() : base.getNodeA(edgeIdx);
+	}
+
+	public int getNodeB(int edgeIdx) 
+	{
+		return edgeIdx==newEdge ? edge.getNodeB() : base.getNodeB(edgeIdx);
+	}
+
+	public NodeType getNodeLabel(int nodeIdx) 
+	{
+		return nodeIdx==newNode ? newNodeLabel : base.getNodeLabel(nodeIdx);
+	}
+
+	public EdgeType getEdgeLabel(int edgeIdx) 
+	{
+		return edgeIdx==newEdge ? edgeLabel : base.getEdgeLabel(edgeIdx);
+	}
+
+	public int getNodeCount() 
+	{
+		return base.getNodeCount()+(newNode==NO_NODE ? 0 : 1);
+	}
+
+	public int getMaxNodeIndex() 
+	{
+		return base.getMaxNodeIndex()+(newNode==NO_NODE ? 0 : 1);
+	}
+
+	public int getEdgeCount() 
+	{
+		return base.getEdgeCount()+1;
+	}
+
+	public int getMaxEdgeIndex() 
+	{
+		return newEdge+1;
+	}
+
+	public boolean isValidNode(int nodeIdx) 
+	{
+		return nodeIdx==newNode || base.isValidNode(nodeIdx);
+	}
+
+	public boolean isValidEdge(int edgeIdx) 
+	{
+		return edgeIdx==newEdge || base.isValidEdge(edgeIdx);
+	}
+
+	public BitSet getNodes() 
+	{
+		BitSet nodes= (BitSet)base.getNodes().clone();
+		if(newNode!=NO_NODE)
+			nodes.set(newNode);
+		return nodes;
+	}
+
+	public BitSet getEdges() 
+	{
+		BitSet edges= (BitSet)base.getEdges().clone();
+		edges.set(newEdge);
+		return edges;
+	}
+
+	public IntIterator nodeIndexIterator() 
+	{
+		return new BitSetIterator(getNodes());
+	}
+
+	public IntIterator edgeIndexIterator() 
+	{
+		return new BitSetIterator(getEdges());
+	}
+
+	public IntIterator getEdgeIndices(int nodeIdx) 
+	{
+		return getEdgeIndices(nodeIdx, 0);
+	}
+
+	public IntIterator getInEdgeIndices(int nodeIdx) 
+	{
+		return getEdgeIndices(nodeIdx, Edge.INCOMING);
+	}
+
+	public IntIterator getOutEdgeIndices(int nodeIdx) 
+	{
+		return getEdgeIndices(nodeIdx, Edge.OUTGOING);
+	}
+	
+	//the edges of the node with the given direction (0 for all of them), in edge list order
+	private IntIterator getEdgeIndices(int nodeIdx, int direction)
+	{
+		BitSet positions= new BitSet();
+		int degree= getDegree(nodeIdx);
+		final int[] edges= new int[degree];
+		for (int i = 0; i < degree; i++) 
+		{
+			edges[i]= getNodeEdge(nodeIdx, i);
+			if(direction==0 || getDirection(edges[i], nodeIdx)==direction)
+				positions.set(i);
+		}
+		return new BitSetIterator(positions)
+		{
+			@Override
+			public int next() 
+			{
+				return edges[super.next()];
+			}
+		};
+	}
+
+	public int getID() 
+	{
+		return base.getID();
+	}
+
+	public String getName() 
+	{
+		return base.getName();
+	}
+
+	public void setFreqStatus(Map<NodeType, ArrayList<Integer>> embeddings) 
+	{
+		throw new UnsupportedOperationException("HPExtendedGraph is read only");
+	}
+
+	public int isFrequent(int embedding) 
+	{
+		throw new UnsupportedOperationException("HPExtendedGraph has no frequency status");
+	}
+
+	public void setEdgeLabel(int edgeIdx, EdgeType label) 
+	{
+		throw new UnsupportedOperationException("HPExtendedGraph is read only");
+	}
+
+	public void setNodeLabel(int nodeIdx, NodeType label) 
+	{
+		throw new UnsupportedOperationException("HPExtendedGraph is read only");
+	}
+	
+	private static class BitSetIterator implements IntIterator
+	{
+		private final BitSet bits;
+		private int next;
+		
+		BitSetIterator(BitSet bits)
+		{
+			this.bits=bits;
+			next= bits.nextSetBit(0);
+		}
+		
+		public boolean hasNext() 
+		{
+			return next>=0;
+		}
+
+		public int next() 
+		{
+			if(next<0)
+				throw new NoSuchElementException();
+			int current= next;
+			next= bits.nextSetBit(next+1);
+			return current;
+		}
+
+		public void remove() 
+		{
+			throw new UnsupportedOperationException("HPExtendedGraph is read only");
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * ALE - a read-only window [from,to) over a sorted int array. It is used to hand out the neighbor lists 
+ * of CSRAdjacency (and the intersections computed from them) without copying them.
+ */
+public class IntRange 
+{
+	public static final IntRange EMPTY = new IntRange(new int[0], 0, 0);
+	
+	private final int[] values;
+	private final int from;
+	private final int to;
+	
+	public IntRange(int[] values, int from, int to)
+	{
+		this.values = values;
+		this.from = from;
+		this.to = to;
+	}
+	
+	public IntRange(int[] values)
+	{
+		this(values, 0, values.length);
+	}
+	
+	public int size()
+	{
+		return to-from;
+	}
+	
+	public int get(int i)
+	{
+		return values[from+i];
+	}
+	
+	//position of value in this range, or -1 (the values are sorted)
+	public int indexOf(int value)
+	{
+		int pos = Arrays.binarySearch(values, from, to, value);
+		if(pos<0)
+			return -1;
+		return pos-from;
+	}
+	
+	public boolean contains(int value)
+	{
+		return Arrays.binarySearch(values, from, to, value)>=0;
+	}
+	
+	public int[] getArray()
+	{
+		return values;
+	}
+	
+	public int getFrom()
+	{
+		return from;
+	}
+	
+	public int getTo()
+	{
+		return to;
+	}
+	
+	@Override
+	public String toString() 
+	{
+		return Arrays.toString(Arrays.copyOfRange(values, from, to));
+	}
+}
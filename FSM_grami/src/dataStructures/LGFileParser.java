@@ -0,0 +1,431 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ALE - reads the vertices and edges of a .lg file without going through Strings: the file is memory mapped and split 
+ * into chunks that start at a line, and the chunks are parsed in parallel straight from the mapped bytes.
+ * The first line (t # 0) is skipped, and a later "t" line ends the graph, like the line by line reader did.
+ * Vertex labels are interned per chunk from their bytes, so only the distinct labels become Strings.
+ * The edge labels are not read (every edge of the graph gets label 0).
+ */
+public class LGFileParser 
+{
+	private static final int MIN_CHUNK_SIZE = 1<<20;
+	private static final int MAX_CHUNK_SIZE = 1<<28; //a mapping holds at most 2GB, so big files are mapped by chunk
+	private static final int MAX_LINE_LENGTH = 1<<20;
+	
+	private final String fileName;
+	private int numberOfNodes;
+	private int[] nodeLabels; //index in labels
+	private String[] labels;
+	private int numberOfEdges;
+	private int[] sources;
+	private int[] targets;
+	
+	public LGFileParser(String fileName)
+	{
+		this.fileName = fileName;
+	}
+	
+	public void parse() throws IOException, ParseException
+	{
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		try
+		{
+			long fileSize = channel.size();
+			int threads = Runtime.getRuntime().availableProcessors();
+			long numberOfChunks = Math.max(1, Math.min(threads*4, fileSize/MIN_CHUNK_SIZE));
+			numberOfChunks = Math.max(numberOfChunks, (fileSize+MAX_CHUNK_SIZE-1)/MAX_CHUNK_SIZE);
+			long chunkSize = Math.max(1, (fileSize+numberOfChunks-1)/numberOfChunks);
+			
+			List<Chunk> chunks = new ArrayList<Chunk>();
+			for (long start = 0; start < fileSize || chunks.isEmpty(); start += chunkSize) 
+				chunks.add(new Chunk(channel, fileSize, start, Math.min(fileSize, start+chunkSize)));
+			
+			if(chunks.size()==1)
+				chunks.get(0).call();
+			else
+				runInParallel(chunks);
+			merge(chunks);
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+	
+	private static void runInParallel(List<Chunk> chunks) throws IOException, ParseException
+	{
+		List<Future<Chunk>> futures = ForkJoinPool.commonPool().invokeAll(chunks);
+		for (Future<Chunk> future : futures) 
+		{
+			try
+			{
+				future.get();
+			}
+			catch (ExecutionException e) 
+			{
+				if(e.getCause() instanceof IOException)
+					throw (IOException)e.getCause();
+				if(e.getCause() instanceof ParseException)
+					throw (ParseException)e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+			catch (InterruptedException e) 
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading the graph", e);
+			}
+		}
+	}
+	
+	//concatenates the chunks in file order, up to the chunk where the graph ends
+	private void merge(List<Chunk> chunks) throws ParseException
+	{
+		numberOfNodes = 0;
+		numberOfEdges = 0;
+		int used = 0;
+		while(used < chunks.size())
+		{
+			Chunk c = chunks.get(used++);
+			numberOfNodes += c.numberOfNodes;
+			numberOfEdges += c.numberOfEdges;
+			if(c.isGraphEnd)
+				break;
+		}
+		
+		nodeLabels = new int[numberOfNodes];
+		sources = new int[numberOfEdges];
+		targets = new int[numberOfEdges];
+		HashMap<String, Integer> labelIndex = new HashMap<String, Integer>();
+		ArrayList<String> labelList = new ArrayList<String>();
+		int node = 0;
+		int edge = 0;
+		for (int i = 0; i < used; i++) 
+		{
+			Chunk c = chunks.get(i);
+			//chunk label index -> label index
+			int[] chunkLabels = new int[c.labels.size()];
+			for (int l = 0; l < chunkLabels.length; l++) 
+			{
+				String label = new String(c.labels.getBytes(l), StandardCharsets.UTF_8);
+				Integer index = labelIndex.get(label);
+				if(index==null)
+				{
+					index = labelList.size();
+					labelIndex.put(label, index);
+					labelList.add(label);
+				}
+				chunkLabels[l] = index;
+			}
+			for (int v = 0; v < c.numberOfNodes; v++) 
+			{
+				if(c.nodeIDs[v] != node)
+				{
+					System.out.println(c.nodeIDs[v]+" "+node);
+					throw new ParseException("The node list is not sorted", node);
+				}
+				nodeLabels[node++] = chunkLabels[c.nodeLabels[v]];
+			}
+			System.arraycopy(c.sources, 0, sources, edge, c.numberOfEdges);
+			System.arraycopy(c.targets, 0, targets, edge, c.numberOfEdges);
+			edge += c.numberOfEdges;
+		}
+		labels = labelList.toArray(new String[labelList.size()]);
+		
+		for (int e = 0; e < numberOfEdges; e++) 
+		{
+			if(sources[e]>=numberOfNodes || targets[e]>=numberOfNodes)
+				throw new ParseException("The edge "+sources[e]+" "+targets[e]+" has an unknown node", e);
+		}
+	}
+	
+	public int getNumberOfNodes()
+	{
+		return numberOfNodes;
+	}
+	
+	//label of every node, as an index in getLabels()
+	public int[] getNodeLabels()
+	{
+		return nodeLabels;
+	}
+	
+	public String[] getLabels()
+	{
+		return labels;
+	}
+	
+	public int getNumberOfEdges()
+	{
+		return numberOfEdges;
+	}
+	
+	public int[] getSources()
+	{
+		return sources;
+	}
+	
+	public int[] getTargets()
+	{
+		return targets;
+	}
+	
+	/**
+	 * the lines starting in [start,end) of the file. The mapping goes a bit further, to finish the last line.
+	 */
+	private static class Chunk implements Callable<Chunk>
+	{
+		private final FileChannel channel;
+		private final long fileSize;
+		private final long start;
+		private final long end;
+		private MappedByteBuffer buffer;
+		private long bufferStart;
+		private int position; //in buffer
+		
+		int numberOfNodes = 0;
+		int[] nodeIDs = new int[16];
+		int[] nodeLabels = new int[16];
+		int numberOfEdges = 0;
+		int[] sources = new int[16];
+		int[] targets = new int[16];
+		final ByteLabels labels = new ByteLabels();
+		boolean isGraphEnd = false; //a "t" line of the next graph was found
+		
+		Chunk(FileChannel channel, long fileSize, long start, long end)
+		{
+			this.channel = channel;
+			this.fileSize = fileSize;
+			this.start = start;
+			this.end = end;
+		}
+		
+		public Chunk call() throws IOException, ParseException
+		{
+			bufferStart = Math.max(0, start-1);
+			long bufferEnd = Math.min(fileSize, end+MAX_LINE_LENGTH);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, bufferStart, bufferEnd-bufferStart);
+			int limit = (int)(end-bufferStart); //lines have to start before limit
+			
+			position = 0;
+			if(start==0 || buffer.get(0)!='\n')
+				skipLine(); //the header line, or a line that belongs to the previous chunk
+			else
+				position = 1;
+			
+			while(position < limit)
+			{
+				byte first = buffer.get(position);
+				if(first=='v')
+				{
+					position++;
+					int id = readInt();
+					int labelStart = skipSpaces();
+					while(position < buffer.limit() && !isSpace(buffer.get(position)))
+						position++;
+					if(position==labelStart)
+						throw new ParseException("Vertex without a label", (int)(bufferStart+position));
+					addNode(id, labels.indexOf(buffer, labelStart, position));
+				}
+				else if(first=='e')
+				{
+					position++;
+					int a = readInt();
+					int b = readInt();
+					addEdge(a, b);
+				}
+				else if(first=='t')
+				{
+					isGraphEnd = true;
+					break;
+				}
+				skipLine();
+			}
+			buffer = null;
+			return this;
+		}
+		
+		private static boolean isSpace(byte b)
+		{
+			return b==' ' || b=='\t' || b=='\r' || b=='\n';
+		}
+		
+		private void skipLine() throws ParseException
+		{
+			while(position < buffer.limit() && buffer.get(position)!='\n')
+				position++;
+			if(position==buffer.limit() && bufferStart+position<fileSize)
+				throw new ParseException("Line longer than "+MAX_LINE_LENGTH+" bytes", (int)(bufferStart+position));
+			position++;
+		}
+		
+		//skips the spaces of the current line, returns the new position
+		private int skipSpaces()
+		{
+			byte b;
+			while(position < buffer.limit() && ((b=buffer.get(position))==' ' || b=='\t'))
+				position++;
+			return position;
+		}
+		
+		private int readInt() throws ParseException
+		{
+			int from = skipSpaces();
+			long value = 0;
+			byte b;
+			while(position < buffer.limit() && (b=buffer.get(position))>='0' && b<='9')
+			{
+				value = value*10 + (b-'0');
+				if(value>Integer.MAX_VALUE)
+					throw new ParseException("Number too big", (int)(bufferStart+from));
+				position++;
+			}
+			if(position==from)
+				throw new ParseException("Expected a node ID", (int)(bufferStart+from));
+			return (int)value;
+		}
+		
+		private void addNode(int id, int label)
+		{
+			if(numberOfNodes==nodeIDs.length)
+			{
+				nodeIDs = Arrays.copyOf(nodeIDs, numberOfNodes*2);
+				nodeLabels = Arrays.copyOf(nodeLabels, numberOfNodes*2);
+			}
+			nodeIDs[numberOfNodes] = id;
+			nodeLabels[numberOfNodes] = label;
+			numberOfNodes++;
+		}
+		
+		private void addEdge(int a, int b)
+		{
+			if(numberOfEdges==sources.length)
+			{
+				sources = Arrays.copyOf(sources, numberOfEdges*2);
+				targets = Arrays.copyOf(targets, numberOfEdges*2);
+			}
+			sources[numberOfEdges] = a;
+			targets[numberOfEdges] = b;
+			numberOfEdges++;
+		}
+	}
+	
+	/**
+	 * distinct byte strings, numbered in the order they are added. Looked up straight from the mapped file.
+	 */
+	private static class ByteLabels
+	{
+		private byte[][] values = new byte[16][];
+		private int[] hashes = new int[16];
+		private int[] table = new int[32]; //open addressing, index+1 in values (0 is empty)
+		private int size = 0;
+		
+		int size()
+		{
+			return size;
+		}
+		
+		byte[] getBytes(int index)
+		{
+			return values[index];
+		}
+		
+		//index of the bytes [from,to) of buffer, added if they are new
+		int indexOf(MappedByteBuffer buffer, int from, int to)
+		{
+			int hash = 0;
+			for (int i = from; i < to; i++) 
+				hash = 31*hash + buffer.get(i);
+			int mask = table.length-1;
+			int slot = slot(hash, mask);
+			while(table[slot]!=0)
+			{
+				int index = table[slot]-1;
+				if(hashes[index]==hash && equals(values[index], buffer, from, to))
+					return index;
+				slot = (slot+1) & mask;
+			}
+			
+			byte[] bytes = new byte[to-from];
+			for (int i = from; i < to; i++) 
+				bytes[i-from] = buffer.get(i);
+			if(size==values.length)
+			{
+				values = Arrays.copyOf(values, size*2);
+				hashes = Arrays.copyOf(hashes, size*2);
+			}
+			values[size] = bytes;
+			hashes[size] = hash;
+			table[slot] = ++size;
+			if(size*2 > table.length)
+				rehash();
+			return size-1;
+		}
+		
+		private static int slot(int hash, int mask)
+		{
+			int h = hash*0x9E3779B9;
+			return (h ^ (h>>>16)) & mask;
+		}
+		
+		private static boolean equals(byte[] value, MappedByteBuffer buffer, int from, int to)
+		{
+			if(value.length!=to-from)
+				return false;
+			for (int i = 0; i < value.length; i++) 
+			{
+				if(value[i]!=buffer.get(from+i))
+					return false;
+			}
+			return true;
+		}
+		
+		private void rehash()
+		{
+			table = new int[table.length*2];
+			int mask = table.length-1;
+			for (int index = 0; index < size; index++) 
+			{
+				int slot = slot(hashes[index], mask);
+				while(table[slot]!=0)
+					slot = (slot+1) & mask;
+				table[slot] = index+1;
+			}
+		}
+	}
+}
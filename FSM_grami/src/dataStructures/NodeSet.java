@@ -0,0 +1,522 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * ALE - a set of nodes stored as a compressed bitset over their IDs, used as the domain of a CSP variable.
+ * The IDs are split by their high 16 bits into containers. A container with few values keeps them as a sorted 
+ * array of their low 16 bits, a fuller one keeps a bitmap of 1024 words, so small domains stay small and 
+ * dense ones get word-at-a-time and/andNot. The nodes themselves are taken from the universe (node i at position i).
+ */
+public class NodeSet implements Iterable<myNode>
+{
+	private static final int ARRAY_LIMIT = 4096; //an array container with more values becomes a bitmap
+	private static final int BITMAP_WORDS = 1024;
+	
+	private final List<myNode> universe;
+	private int[] highs = new int[4]; //sorted high 16 bits of each container
+	private char[][] arrays = new char[4][]; //sorted low 16 bits, for the array containers
+	private long[][] bitmaps = new long[4][]; //null for the array containers
+	private int[] cardinalities = new int[4];
+	private int numberOfContainers = 0;
+	private int size = 0;
+	
+	public NodeSet(List<myNode> universe)
+	{
+		this.universe = universe;
+	}
+	
+	public NodeSet(NodeSet other)
+	{
+		universe = other.universe;
+		int n = Math.max(1, other.numberOfContainers);
+		highs = Arrays.copyOf(other.highs, n);
+		arrays = new char[n][];
+		bitmaps = new long[n][];
+		cardinalities = Arrays.copyOf(other.cardinalities, n);
+		for (int i = 0; i < other.numberOfContainers; i++) 
+		{
+			if(other.bitmaps[i]!=null)
+				bitmaps[i] = other.bitmaps[i].clone();
+			else
+				arrays[i] = Arrays.copyOf(other.arrays[i], Math.max(4, other.cardinalities[i]));
+		}
+		numberOfContainers = other.numberOfContainers;
+		size = other.size;
+	}
+	
+	public List<myNode> getUniverse()
+	{
+		return universe;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public boolean isEmpty()
+	{
+		return size==0;
+	}
+	
+	private int containerIndex(int high)
+	{
+		return Arrays.binarySearch(highs, 0, numberOfContainers, high);
+	}
+	
+	public boolean contains(int ID)
+	{
+		int i = containerIndex(ID>>>16);
+		if(i<0)
+			return false;
+		char low = (char)ID;
+		if(bitmaps[i]!=null)
+			return (bitmaps[i][low>>>6] & (1L<<low))!=0;
+		return Arrays.binarySearch(arrays[i], 0, cardinalities[i], low)>=0;
+	}
+	
+	//the node with this ID if it is in the set, null otherwise
+	public myNode get(int ID)
+	{
+		if(contains(ID))
+			return universe.get(ID);
+		return null;
+	}
+	
+	public boolean add(myNode node)
+	{
+		return add(node.getID());
+	}
+	
+	public boolean add(int ID)
+	{
+		int high = ID>>>16;
+		char low = (char)ID;
+		int i = containerIndex(high);
+		if(i<0)
+		{
+			i = -i-1;
+			insertContainer(i, high);
+		}
+		if(bitmaps[i]!=null)
+		{
+			long bit = 1L<<low;
+			if((bitmaps[i][low>>>6] & bit)!=0)
+				return false;
+			bitmaps[i][low>>>6] |= bit;
+		}
+		else
+		{
+			char[] values = arrays[i];
+			int cardinality = cardinalities[i];
+			int position;
+			if(cardinality==0 || values[cardinality-1]<low)
+				position = cardinality; //IDs are often added in order
+			else
+			{
+				position = Arrays.binarySearch(values, 0, cardinality, low);
+				if(position>=0)
+					return false;
+				position = -position-1;
+			}
+			if(cardinality==ARRAY_LIMIT)
+			{
+				toBitmap(i);
+				bitmaps[i][low>>>6] |= 1L<<low;
+			}
+			else
+			{
+				if(cardinality==values.length)
+					values = arrays[i] = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality*2));
+				System.arraycopy(values, position, values, position+1, cardinality-position);
+				values[position] = low;
+			}
+		}
+		cardinalities[i]++;
+		size++;
+		return true;
+	}
+	
+	public boolean remove(int ID)
+	{
+		int i = containerIndex(ID>>>16);
+		if(i<0)
+			return false;
+		char low = (char)ID;
+		if(bitmaps[i]!=null)
+		{
+			long bit = 1L<<low;
+			if((bitmaps[i][low>>>6] & bit)==0)
+				return false;
+			bitmaps[i][low>>>6] &= ~bit;
+		}
+		else
+		{
+			int position = Arrays.binarySearch(arrays[i], 0, cardinalities[i], low);
+			if(position<0)
+				return false;
+			System.arraycopy(arrays[i], position+1, arrays[i], position, cardinalities[i]-position-1);
+		}
+		cardinalities[i]--;
+		size--;
+		if(cardinalities[i]==0)
+			removeContainer(i);
+		return true;
+	}
+	
+	public void clear()
+	{
+		for (int i = 0; i < numberOfContainers; i++) 
+		{
+			arrays[i] = null;
+			bitmaps[i] = null;
+		}
+		numberOfContainers = 0;
+		size = 0;
+	}
+	
+	/**
+	 * keeps only the nodes that are also in other
+	 */
+	public void and(NodeSet other)
+	{
+		int kept = 0;
+		int j = 0;
+		size = 0;
+		for (int i = 0; i < numberOfContainers; i++) 
+		{
+			while(j < other.numberOfContainers && other.highs[j] < highs[i])
+				j++;
+			if(j==other.numberOfContainers || other.highs[j]!=highs[i])
+				continue;
+			
+			if(bitmaps[i]!=null && other.bitmaps[j]!=null)
+			{
+				int cardinality = 0;
+				for (int w = 0; w < BITMAP_WORDS; w++) 
+					cardinality += Long.bitCount(bitmaps[i][w] &= other.bitmaps[j][w]);
+				cardinalities[i] = cardinality;
+			}
+			else if(bitmaps[i]!=null)
+			{
+				//the result is at most as big as the array of other
+				char[] values = new char[Math.max(4, other.cardinalities[j])];
+				int cardinality = 0;
+				for (int k = 0; k < other.cardinalities[j]; k++) 
+				{
+					char low = other.arrays[j][k];
+					if((bitmaps[i][low>>>6] & (1L<<low))!=0)
+						values[cardinality++] = low;
+				}
+				bitmaps[i] = null;
+				arrays[i] = values;
+				cardinalities[i] = cardinality;
+			}
+			else
+				cardinalities[i] = filter(arrays[i], cardinalities[i], other, j, true);
+			
+			if(cardinalities[i]>0)
+			{
+				moveContainer(i, kept++);
+				size += cardinalities[kept-1];
+			}
+		}
+		for (int i = kept; i < numberOfContainers; i++) 
+		{
+			arrays[i] = null;
+			bitmaps[i] = null;
+		}
+		numberOfContainers = kept;
+	}
+	
+	/**
+	 * removes the nodes that are in other
+	 */
+	public void andNot(NodeSet other)
+	{
+		int kept = 0;
+		int j = 0;
+		size = 0;
+		for (int i = 0; i < numberOfContainers; i++) 
+		{
+			while(j < other.numberOfContainers && other.highs[j] < highs[i])
+				j++;
+			if(j < other.numberOfContainers && other.highs[j]==highs[i])
+			{
+				if(bitmaps[i]!=null && other.bitmaps[j]!=null)
+				{
+					int cardinality = 0;
+					for (int w = 0; w < BITMAP_WORDS; w++) 
+						cardinality += Long.bitCount(bitmaps[i][w] &= ~other.bitmaps[j][w]);
+					cardinalities[i] = cardinality;
+				}
+				else if(bitmaps[i]!=null)
+				{
+					for (int k = 0; k < other.cardinalities[j]; k++) 
+					{
+						char low = other.arrays[j][k];
+						long bit = 1L<<low;
+						if((bitmaps[i][low>>>6] & bit)!=0)
+						{
+							bitmaps[i][low>>>6] &= ~bit;
+							cardinalities[i]--;
+						}
+					}
+				}
+				else
+					cardinalities[i] = filter(arrays[i], cardinalities[i], other, j, false);
+			}
+			
+			if(cardinalities[i]>0)
+			{
+				moveContainer(i, kept++);
+				size += cardinalities[kept-1];
+			}
+		}
+		for (int i = kept; i < numberOfContainers; i++) 
+		{
+			arrays[i] = null;
+			bitmaps[i] = null;
+		}
+		numberOfContainers = kept;
+	}
+	
+	//keeps in place the values that are (or are not) in container j of other, returns how many were kept
+	private static int filter(char[] values, int cardinality, NodeSet other, int j, boolean keepCommon)
+	{
+		int kept = 0;
+		if(other.bitmaps[j]!=null)
+		{
+			long[] bitmap = other.bitmaps[j];
+			for (int k = 0; k < cardinality; k++) 
+			{
+				char low = values[k];
+				if(((bitmap[low>>>6] & (1L<<low))!=0)==keepCommon)
+					values[kept++] = low;
+			}
+			return kept;
+		}
+		//merge of two sorted arrays
+		char[] otherValues = other.arrays[j];
+		int otherCardinality = other.cardinalities[j];
+		int o = 0;
+		for (int k = 0; k < cardinality; k++) 
+		{
+			char low = values[k];
+			while(o < otherCardinality && otherValues[o] < low)
+				o++;
+			boolean isCommon = o < otherCardinality && otherValues[o]==low;
+			if(isCommon==keepCommon)
+				values[kept++] = low;
+		}
+		return kept;
+	}
+	
+	private void moveContainer(int from, int to)
+	{
+		if(from==to)
+			return;
+		highs[to] = highs[from];
+		arrays[to] = arrays[from];
+		bitmaps[to] = bitmaps[from];
+		cardinalities[to] = cardinalities[from];
+	}
+	
+	private void insertContainer(int i, int high)
+	{
+		if(numberOfContainers==highs.length)
+		{
+			int capacity = numberOfContainers*2;
+			highs = Arrays.copyOf(highs, capacity);
+			arrays = Arrays.copyOf(arrays, capacity);
+			bitmaps = Arrays.copyOf(bitmaps, capacity);
+			cardinalities = Arrays.copyOf(cardinalities, capacity);
+		}
+		int moved = numberOfContainers-i;
+		System.arraycopy(highs, i, highs, i+1, moved);
+		System.arraycopy(arrays, i, arrays, i+1, moved);
+		System.arraycopy(bitmaps, i, bitmaps, i+1, moved);
+		System.arraycopy(cardinalities, i, cardinalities, i+1, moved);
+		highs[i] = high;
+		arrays[i] = new char[4];
+		bitmaps[i] = null;
+		cardinalities[i] = 0;
+		numberOfContainers++;
+	}
+	
+	private void removeContainer(int i)
+	{
+		int moved = numberOfContainers-i-1;
+		System.arraycopy(highs, i+1, highs, i, moved);
+		System.arraycopy(arrays, i+1, arrays, i, moved);
+		System.arraycopy(bitmaps, i+1, bitmaps, i, moved);
+		System.arraycopy(cardinalities, i+1, cardinalities, i, moved);
+		numberOfContainers--;
+		arrays[numberOfContainers] = null;
+		bitmaps[numberOfContainers] = null;
+	}
+	
+	private void toBitmap(int i)
+	{
+		long[] bitmap = new long[BITMAP_WORDS];
+		for (int k = 0; k < cardinalities[i]; k++) 
+		{
+			char low = arrays[i][k];
+			bitmap[low>>>6] |= 1L<<low;
+		}
+		bitmaps[i] = bitmap;
+		arrays[i] = null;
+	}
+	
+	//smallest low value >= from in a bitmap, -1 if there is none
+	private static int nextSetBit(long[] bitmap, int from)
+	{
+		int w = from>>>6;
+		if(w>=BITMAP_WORDS)
+			return -1;
+		long word = bitmap[w] & (-1L<<from);
+		while(true)
+		{
+			if(word!=0)
+				return (w<<6) + Long.numberOfTrailingZeros(word);
+			if(++w==BITMAP_WORDS)
+				return -1;
+			word = bitmap[w];
+		}
+	}
+	
+	//smallest ID in the set, -1 if it is empty
+	public int first()
+	{
+		if(size==0)
+			return -1;
+		if(bitmaps[0]!=null)
+			return (highs[0]<<16) | nextSetBit(bitmaps[0], 0);
+		return (highs[0]<<16) | arrays[0][0];
+	}
+	
+	/**
+	 * the nodes by increasing ID. Removing the current node through the iterator is allowed.
+	 */
+	public Iterator<myNode> iterator()
+	{
+		return new NodeIterator();
+	}
+	
+	public String toString()
+	{
+		StringBuilder text = new StringBuilder("[");
+		for (NodeIterator it = new NodeIterator(); it.hasNext();) 
+		{
+			text.append(it.nextID());
+			if(it.hasNext())
+				text.append(", ");
+		}
+		return text.append("]").toString();
+	}
+	
+	private class NodeIterator implements Iterator<myNode>
+	{
+		private int container = 0;
+		private int position = -1; //of the current node: its index in an array container, or its bit in a bitmap
+		private boolean canRemove = false;
+		private int nextContainer;
+		private int nextPosition;
+		
+		//finds the node after the current one, in nextContainer and nextPosition
+		private boolean findNext()
+		{
+			int c = container;
+			int p = position+1;
+			while(c < numberOfContainers)
+			{
+				if(bitmaps[c]!=null)
+				{
+					int low = nextSetBit(bitmaps[c], p);
+					if(low>=0)
+					{
+						nextContainer = c;
+						nextPosition = low;
+						return true;
+					}
+				}
+				else if(p < cardinalities[c])
+				{
+					nextContainer = c;
+					nextPosition = p;
+					return true;
+				}
+				c++;
+				p = 0;
+			}
+			return false;
+		}
+		
+		public boolean hasNext()
+		{
+			return findNext();
+		}
+		
+		int nextID()
+		{
+			if(!findNext())
+				throw new NoSuchElementException();
+			container = nextContainer;
+			position = nextPosition;
+			canRemove = true;
+			if(bitmaps[container]!=null)
+				return (highs[container]<<16) | position;
+			return (highs[container]<<16) | arrays[container][position];
+		}
+		
+		public myNode next()
+		{
+			return universe.get(nextID());
+		}
+		
+		//removes the current node where the iterator is, without looking for it
+		public void remove()
+		{
+			if(!canRemove)
+				throw new IllegalStateException();
+			canRemove = false;
+			if(bitmaps[container]!=null)
+				bitmaps[container][position>>>6] &= ~(1L<<position);
+			else
+			{
+				System.arraycopy(arrays[container], position+1, arrays[container], position, cardinalities[container]-position-1);
+				position--; //the next node moved to the current position
+			}
+			cardinalities[container]--;
+			size--;
+			if(cardinalities[container]==0)
+			{
+				removeContainer(container); //the next container moved to this index
+				position = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ALE - identity of a pattern, with the same content as DFScodeSerializer.serialize (node indices and labels, then the
+ * directed edges and their labels, in index order) packed into a long[], two ints per long. 
+ * Used as key wherever the serialized string was, the string is only built for the output files.
+ */
+public class PatternKey 
+{
+	private static final ConcurrentHashMap<PatternKey, PatternKey> interned= new ConcurrentHashMap<PatternKey, PatternKey>();
+	
+	private final long[] words;
+	private final int hash;
+	
+	private PatternKey(long[] words)
+	{
+		this.words=words;
+		this.hash=Arrays.hashCode(words);
+	}
+	
+	public static PatternKey of(final HPGraph<?, ?> graph)
+	{
+		BitSet nodes= graph.getNodes();
+		BitSet edges= graph.getEdges();
+		int numberOfNodes= nodes.cardinality();
+		int numberOfEdges= edges.cardinality();
+		int[] values= new int[2+2*numberOfNodes+3*numberOfEdges];
+		int n=0;
+		values[n++]=numberOfNodes;
+		values[n++]=numberOfEdges;
+		for (int nodeIdx = nodes.nextSetBit(0); nodeIdx >= 0; nodeIdx = nodes.nextSetBit(nodeIdx + 1)) 
+		{
+			values[n++]=nodeIdx;
+			values[n++]=(Integer)graph.getNodeLabel(nodeIdx);
+		}
+		for (int edgeIdx = edges.nextSetBit(0); edgeIdx >= 0; edgeIdx = edges.nextSetBit(edgeIdx + 1)) 
+		{
+			if(graph.getDirection(edgeIdx)>=0)
+			{
+				values[n++]=graph.getNodeA(edgeIdx);
+				values[n++]=graph.getNodeB(edgeIdx);
+			}
+			else
+			{
+				values[n++]=graph.getNodeB(edgeIdx);
+				values[n++]=graph.getNodeA(edgeIdx);
+			}
+			values[n++]=Integer.parseInt((String)graph.getEdgeLabel(edgeIdx));
+		}
+		
+		long[] words= new long[(n+1)/2];
+		for (int i = 0; i < n; i++) 
+			words[i>>1]|=(values[i]&0xFFFFFFFFL)<<((i&1)<<5);
+		return new PatternKey(words);
+	}
+	
+	//for PatternStore
+	long[] getWords()
+	{
+		return words;
+	}
+	
+	static PatternKey fromWords(long[] words)
+	{
+		return new PatternKey(words);
+	}
+	
+	/**
+	 * @return the one key of the table equal to this one (added if there was none), for keys that are kept for the whole run
+	 */
+	public PatternKey intern()
+	{
+		PatternKey old= interned.putIfAbsent(this, this);
+		return old==null ? this : old;
+	}
+	
+	//estimated heap size of the key
+	public long getSize()
+	{
+		return 24+16+8*words.length;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		if(this==o)
+			return true;
+		if(!(o instanceof PatternKey))
+			return false;
+		PatternKey other= (PatternKey)o;
+		return hash==other.hash && Arrays.equals(words, other.words);
+	}
+}
@@ -0,0 +1,406 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dataStructures;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import utilities.Settings;
+
+import CSP.Variable;
+
+/**
+ * ALE - the support, result domains, pruned domains and nonCandidates of every evaluated pattern, appended to a file (-store) as soon as 
+ * they are computed, so a run that is restarted on the same graph finds the patterns already evaluated and skips their search.
+ * The file is an append-only log of records (length, payload, CRC32). The index (pattern and settings -> offset of its record)
+ * is kept in memory and built again by scanning the log when the file is opened. A record cut by a crash fails the check
+ * and the log is truncated there.
+ * A record is only used by a run with the same frequency threshold and support mode, the supports depend on them.
+ * The pruned domains (DFSCode.getDomainVariables) are kept too, the children of a restored pattern are screened and 
+ * seeded from them as in the run that wrote it, so they are pruned the same way and found in the store.
+ */
+public class PatternStore 
+{
+	private static final long MAGIC = 0x4752614D69505354L;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 8+4+8;
+	
+	private static RandomAccessFile file;
+	private static String fileName;
+	private static final HashMap<IndexKey, Long> index = new HashMap<IndexKey, Long>();
+	private static long restored;
+	private static long added;
+	
+	private static class IndexKey
+	{
+		final PatternKey pattern;
+		final long parameters;
+		
+		IndexKey(PatternKey pattern, long parameters)
+		{
+			this.pattern=pattern;
+			this.parameters=parameters;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return pattern.hashCode()*31+(int)(parameters^(parameters>>>32));
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			IndexKey other= (IndexKey)o;
+			return parameters==other.parameters && pattern.equals(other.pattern);
+		}
+	}
+	
+	public static class Record
+	{
+		private final int support;
+		private final int[][] domains;
+		private final int[][] prunedDomains;
+		private final HashMap<Integer, HashSet<Integer>> nonCandidates;
+		
+		private Record(int support, int[][] domains, int[][] prunedDomains, HashMap<Integer, HashSet<Integer>> nonCandidates)
+		{
+			this.support=support;
+			this.domains=domains;
+			this.prunedDomains=prunedDomains;
+			this.nonCandidates=nonCandidates;
+		}
+		
+		public int getSupport()
+		{
+			return support;
+		}
+		
+		public HashMap<Integer, HashSet<Integer>> getNonCandidates()
+		{
+			return nonCandidates;
+		}
+		
+		//the result variables of the search, with the constraints of the query as SPpruner sets them
+		public Variable[] getVariables(Graph graph, Query qry)
+		{
+			return toVariables(domains, graph, qry);
+		}
+		
+		//the pruned domains of the search in the same form, or null if they were not stored (they are the result variables)
+		public Variable[] getDomainVariables(Graph graph, Query qry)
+		{
+			if(prunedDomains==null)
+				return null;
+			return toVariables(prunedDomains, graph, qry);
+		}
+		
+		private static Variable[] toVariables(int[][] domains, Graph graph, Query qry)
+		{
+			Variable[] variables= new Variable[domains.length];
+			for (int i = 0; i < domains.length; i++) 
+			{
+				NodeSet list= new NodeSet(graph.getNodes());
+				for (int j = 0; j < domains[i].length; j++) 
+					list.add(domains[i][j]);
+				variables[i]= new Variable(i, qry.getListGraph().getNodeLabel(i), list, null, null);
+			}
+			ArrayList<ConnectedComponent> cls= qry.getConnectedLabels();
+			for (int i = 0; i < cls.size(); i++) 
+			{
+				ConnectedComponent c = cls.get(i);
+				variables[c.getIndexA()].addConstraintWith(c.getIndexB(), c.getEdgeLabel());
+				variables[c.getIndexB()].addConstrainedBy(c.getIndexA(), c.getEdgeLabel());
+			}
+			return variables;
+		}
+	}
+	
+	/**
+	 * opens the store, creating it if the file does not exist. A file written for another graph is not used.
+	 */
+	public static synchronized void open(String name, Graph graph) throws IOException
+	{
+		close();
+		long fingerprint= graph.getFingerprint();
+		RandomAccessFile raf= new RandomAccessFile(name, "rw");
+		try
+		{
+			if(raf.length()==0)
+			{
+				raf.writeLong(MAGIC);
+				raf.writeInt(VERSION);
+				raf.writeLong(fingerprint);
+			}
+			else
+			{
+				if(raf.length()<HEADER_SIZE || raf.readLong()!=MAGIC)
+					throw new IOException(name+" is not a pattern store");
+				if(raf.readInt()!=VERSION)
+					throw new IOException(name+" was written by another version, remove it to start a new store");
+				if(raf.readLong()!=fingerprint)
+					throw new IOException(name+" was written for another graph");
+				long end= scan(name, raf.length());
+				if(end<raf.length())
+				{
+					System.out.println("ALE pattern store: dropping an incomplete record at the end of "+name);
+					raf.setLength(end);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			raf.close();
+			index.clear();
+			throw e;
+		}
+		file= raf;
+		fileName= name;
+		restored= 0;
+		added= 0;
+		System.out.println("ALE pattern store: "+index.size()+" patterns in "+name);
+	}
+	
+	//fills the index, returns where the valid records end
+	private static long scan(String name, long length) throws IOException
+	{
+		index.clear();
+		DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(name), 1<<16));
+		try
+		{
+			long position= HEADER_SIZE;
+			in.skipBytes(HEADER_SIZE);
+			CRC32 crc= new CRC32();
+			while(position+8<=length)
+			{
+				int size= in.readInt();
+				if(size<0 || position+4+size+4>length)
+					break;
+				byte[] payload= new byte[size];
+				in.readFully(payload);
+				crc.reset();
+				crc.update(payload, 0, size);
+				if(in.readInt()!=(int)crc.getValue())
+					break;
+				DataInputStream record= new DataInputStream(new ByteArrayInputStream(payload));
+				long parameters= record.readLong();
+				record.readInt();
+				index.put(new IndexKey(readKey(record), parameters), position);
+				position+=4+size+4;
+			}
+			return position;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	public static synchronized boolean isOpen()
+	{
+		return file!=null;
+	}
+	
+	/**
+	 * @return the record of this pattern evaluated with this threshold (and the current support mode), or null
+	 */
+	public static synchronized Record find(PatternKey key, int freqThreshold)
+	{
+		if(file==null)
+			return null;
+		Long position= index.get(new IndexKey(key, getParameters(freqThreshold)));
+		if(position==null)
+			return null;
+		try
+		{
+			file.seek(position);
+			byte[] payload= new byte[file.readInt()];
+			file.readFully(payload);
+			DataInputStream in= new DataInputStream(new ByteArrayInputStream(payload));
+			in.readLong();
+			int support= in.readInt();
+			readKey(in);
+			int[][] domains= readDomains(in);
+			int[][] prunedDomains= readDomains(in);
+			int numberOfNonCandidates= in.readInt();
+			HashMap<Integer, HashSet<Integer>> nonCandidates= new HashMap<Integer, HashSet<Integer>>();
+			for (int i = 0; i < numberOfNonCandidates; i++) 
+			{
+				int node= in.readInt();
+				int[] ids= readInts(in);
+				HashSet<Integer> set= new HashSet<Integer>();
+				for (int j = 0; j < ids.length; j++) 
+					set.add(ids[j]);
+				nonCandidates.put(node, set);
+			}
+			restored++;
+			return new Record(support, domains, prunedDomains, nonCandidates);
+		}
+		catch (IOException e)
+		{
+			failed(e);
+			return null;
+		}
+	}
+	
+	/**
+	 * appends the outcome of the search of a pattern
+	 * @param domainVariables the pruned domains of the search, null if they are the result variables (or unknown)
+	 */
+	public static synchronized void add(PatternKey key, int freqThreshold, int support, Variable[] variables, Variable[] domainVariables, 
+			HashMap<Integer, HashSet<Integer>> nonCandidates)
+	{
+		if(file==null)
+			return;
+		long parameters= getParameters(freqThreshold);
+		try
+		{
+			ByteArrayOutputStream bytes= new ByteArrayOutputStream(256);
+			DataOutputStream out= new DataOutputStream(bytes);
+			out.writeLong(parameters);
+			out.writeInt(support);
+			long[] words= key.getWords();
+			out.writeInt(words.length);
+			for (int i = 0; i < words.length; i++) 
+				out.writeLong(words[i]);
+			writeDomains(out, variables==null ? new Variable[0] : variables);
+			writeDomains(out, domainVariables);
+			int numberOfNonCandidates= nonCandidates==null ? 0 : nonCandidates.size();
+			out.writeInt(numberOfNonCandidates);
+			if(nonCandidates!=null)
+				for (Entry<Integer, HashSet<Integer>> entry : nonCandidates.entrySet()) 
+				{
+					out.writeInt(entry.getKey());
+					out.writeInt(entry.getValue().size());
+					for (Integer id : entry.getValue()) 
+						out.writeInt(id);
+				}
+			out.flush();
+			byte[] payload= bytes.toByteArray();
+			CRC32 crc= new CRC32();
+			crc.update(payload, 0, payload.length);
+			
+			//one write per record
+			ByteArrayOutputStream record= new ByteArrayOutputStream(4+payload.length+4);
+			DataOutputStream recordOut= new DataOutputStream(record);
+			recordOut.writeInt(payload.length);
+			recordOut.write(payload);
+			recordOut.writeInt((int)crc.getValue());
+			long position= file.length();
+			file.seek(position);
+			file.write(record.toByteArray());
+			index.put(new IndexKey(key, parameters), position);
+			added++;
+		}
+		catch (IOException e)
+		{
+			failed(e);
+		}
+	}
+	
+	//-1 for no domains
+	private static void writeDomains(DataOutputStream out, Variable[] variables) throws IOException
+	{
+		if(variables==null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(variables.length);
+		for (int i = 0; i < variables.length; i++) 
+		{
+			NodeSet list= variables[i].getList();
+			out.writeInt(list.size());
+			for (Iterator<myNode> it = list.iterator(); it.hasNext();) 
+				out.writeInt(it.next().getID());
+		}
+	}
+	
+	private static int[][] readDomains(DataInputStream in) throws IOException
+	{
+		int numberOfVariables= in.readInt();
+		if(numberOfVariables<0)
+			return null;
+		int[][] domains= new int[numberOfVariables][];
+		for (int i = 0; i < numberOfVariables; i++) 
+			domains[i]= readInts(in);
+		return domains;
+	}
+	
+	public static synchronized void close()
+	{
+		if(file==null)
+			return;
+		System.out.println("ALE pattern store: "+index.size()+" patterns in "+fileName+", "+restored+" searches skipped, "+added+" patterns searched");
+		try
+		{
+			file.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		file= null;
+		index.clear();
+	}
+	
+	//the run goes on without the store
+	private static void failed(IOException e)
+	{
+		System.out.println("ALE pattern store: "+fileName+" failed, the run goes on without it");
+		e.printStackTrace();
+		close();
+	}
+	
+	//the frequency threshold and the settings that change the support of a pattern
+	private static long getParameters(int freqThreshold)
+	{
+		int mode= (Settings.exactSupport ? 1 : 0) | (Settings.isApproximate ? 2 : 0);
+		return ((long)mode<<32)|(freqThreshold&0xFFFFFFFFL);
+	}
+	
+	private static PatternKey readKey(DataInputStream in) throws IOException
+	{
+		long[] words= new long[in.readInt()];
+		for (int i = 0; i < words.length; i++) 
+			words[i]= in.readLong();
+		return PatternKey.fromWords(words);
+	}
+	
+	private static int[] readInts(DataInputStream in) throws IOException
+	{
+		int[] values= new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) 
+			values[i]= in.readInt();
+		return values;
+	}
+}
@@ -20,8 +20,6 @@ along with Grami.  If not, see <http://www.gnu.org/licenses/>.
 
 package dataStructures;
 
-import java.util.HashMap;
-import java.util.TreeSet; //ALE
 import java.util.Set; //ALE
 import java.util.Comparator; //ALE
 
@@ -38,66 +36,35 @@ class MyComparator implements Comparator<Integer>
 
 public class StaticData {
 
-	public static HashMap<String, HashMap<Integer, Integer>[]> hashedEdges;
-	public static HashMap<String, HashMap<Integer, Integer>[]> originalHashedEdges; //ALE
+	public static EdgeSignatureIndex edgeSignatures; //ALE replaces the String keyed hashedEdges, built when the graph is loaded
 	public static int maxFrequencyOfEdges = -1; //ALE
 	
 	public static int minSizeOfGraphs = 0;
 	
-	public static int getHashedEdgesFreq(String sig)
+	public static int getEdgeSignatureFreq(int labelA, double edgeLabel, int labelB)
 	{
-		HashMap<Integer, Integer>[] hm = hashedEdges.get(sig);
-		if(hm==null)
-			return 0;
-		int freq = hm[0].size();
-		if(freq>hm[1].size())
-			return hm[1].size();
-		return freq;
+		return edgeSignatures.getFrequency(labelA, edgeLabel, labelB);
 	}
 	public static int counter = 0;
 	
 	//ALE
 	public static Set<Integer> getAllEdgesFrequencies()
 	{
-		Set<Integer> frequencies = new TreeSet<Integer>();
-		//this method returns all frequencies of all of the edges IN DESCENDING ORDER.
-		for(String edgeID : hashedEdges.keySet()) 
-		{
-			frequencies.add(getHashedEdgesFreq(edgeID));
-			
-			if(maxFrequencyOfEdges < getHashedEdgesFreq(edgeID))
-				maxFrequencyOfEdges = getHashedEdgesFreq(edgeID); 
-		}
+		//this method returns all frequencies of all of the edges
+		Set<Integer> frequencies = edgeSignatures.getAllFrequencies();
+		if(maxFrequencyOfEdges < edgeSignatures.getMaxFrequency())
+			maxFrequencyOfEdges = edgeSignatures.getMaxFrequency();
 		
 		return frequencies;
 		
 	}
 	
-	//ALE
-	public static void resetHashedEdges()
-	{
-		//this will turn the pruned hashedEdges back into the non pruned one, useful when preparing FSM for a new freqThreshold
-		hashedEdges.clear();
-		hashedEdges.putAll(originalHashedEdges);
-	}
-	
-	//ALE
-	public static void setOriginalHashedEdges()
-	{
-		originalHashedEdges = new HashMap<String, HashMap<Integer, Integer>[]>();
-		originalHashedEdges.putAll(hashedEdges);
-	}
-	
 	//ALE
 	public static int getMaxFrequencyOfEdges()
 	{
 		//this method finds the maximum frequency (support) for individual edges in the graph (AKA once we find this number, we know that it is no use to do FSM with a freqThreshold above this number, as no frequent edges will be found)
-		for(String edgeID : hashedEdges.keySet()) 
-		{	
-			//System.out.println("Edge " + edgeID + " appearances: " + getHashedEdgesFreq(edgeID));
-			if(maxFrequencyOfEdges < getHashedEdgesFreq(edgeID))
-				maxFrequencyOfEdges = getHashedEdgesFreq(edgeID); 
-		}
+		if(maxFrequencyOfEdges < edgeSignatures.getMaxFrequency())
+			maxFrequencyOfEdges = edgeSignatures.getMaxFrequency();
 		
 		return maxFrequencyOfEdges;
 		
@@ -20,21 +20,8 @@ along with Grami.  If not, see <http://www.gnu.org/licenses/>.
 
 package dataStructures;
 
-import java.awt.List;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.HashSet; //ALE
-
-import org.w3c.dom.ls.LSInput;
-
-import utilities.MyPair;
-
-import Dijkstra.DijkstraEngine;
+import java.util.Set;
 
 
 public class myNode 
@@ -43,10 +30,8 @@ public class myNode
 	private	int label;
 	private int[] shortestPaths;
 	
-	//ALE key is node label, and the value is a list of node's IDs with this label and the edgeLabel
-	private HashMap<Integer, ArrayList<MyPair<Integer, Double>>> reachableNodes;//represented by Label~<nodeID,edge_label>, represents the outgoing nodes
-	
-	private HashMap<Integer, ArrayList<MyPair<Integer, Double>>> reachedBYNodes; //represented by Label~<nodeID,edge_label>, represents the ingoing nodes
+	//ALE the outgoing and ingoing nodes, grouped by node label and edge label (shared by all the nodes of the graph)
+	private CSRAdjacency adjacency;
 	
 	@Override
 	public String toString() {
@@ -62,27 +47,28 @@ public class myNode
 	}
 	
 	//ALE
-	public void resetNodeDetails()
+	public void setAdjacency(CSRAdjacency adjacency)
 	{
-		reachableNodes= new HashMap<Integer, ArrayList<MyPair<Integer, Double>>>();
-		reachedBYNodes= new HashMap<Integer, ArrayList<MyPair<Integer, Double>>>();
+		this.adjacency = adjacency;
+	}
+	
+	//ALE a node whose label is not frequent has no reachable nodes
+	private boolean isActive()
+	{
+		return adjacency!=null && adjacency.isActive(label);
 	}
 	
 	public int getOutDegree(int label)
 	{
-		if(reachableNodes==null)
-			return 0;
-		if(reachableNodes.get(label)==null)
+		if(!isActive())
 			return 0;
-		return reachableNodes.get(label).size();
+		return adjacency.getDegree(CSRAdjacency.OUT, ID, label);
 	}
 	public int getinDegree(int label)
 	{
-		if(reachedBYNodes==null)
+		if(!isActive())
 			return 0;
-		if(reachedBYNodes.get(label)==null)
-			return 0;
-		return reachedBYNodes.get(label).size();
+		return adjacency.getDegree(CSRAdjacency.IN, ID, label);
 	}
 	
 	public int getID()
@@ -94,208 +80,81 @@ public class myNode
 		return label;
 	}
 	
-	public void addreachableNode(myNode node, double edgeLabel)
-	{
-		if(reachableNodes==null)
-			reachableNodes= new HashMap<Integer, ArrayList<MyPair<Integer, Double>>>();
-		
-		ArrayList<MyPair<Integer, Double>> list=reachableNodes.get(node.getLabel());
-		if(list==null)
-			{
-				list = new ArrayList<MyPair<Integer, Double>>();
-				reachableNodes.put(node.getLabel(), list);
-			}
-		if(!list.contains(node.getID()))
-			list.add(new MyPair(node.getID(), edgeLabel)); //ALE, we add the received node param to our children
-		node.addreachedBYNodes(this, edgeLabel); //ALE and for the received node, we indicate that it can be reached by this node
-		
-	}
-	
-	
-	private void addreachedBYNodes(myNode node, double edgeLabel)
-	{
-		if(reachedBYNodes==null)
-			reachedBYNodes= new HashMap<Integer, ArrayList<MyPair<Integer, Double>>>();
-		ArrayList<MyPair<Integer, Double>> list=reachedBYNodes.get(node.getLabel());
-		if(list==null)
-			{
-				list = new ArrayList<MyPair<Integer, Double>>();
-				reachedBYNodes.put(node.getLabel(), list);
-			}
-		if(!list.contains(node.getID()))
-			list.add(new MyPair(node.getID(), edgeLabel));
-	}
-	
 	public void printOutReachableNodes()
 	{
-		if(reachableNodes==null)
+		if(!isActive())
 			return;
-		for (Iterator<ArrayList<MyPair<Integer, Double>>> iterator = reachableNodes.values().iterator(); iterator.hasNext();)
+		for (int g = adjacency.getFirstGroup(CSRAdjacency.OUT, ID); g < adjacency.getLastGroup(CSRAdjacency.OUT, ID); g++) 
 		{
-			ArrayList<MyPair<Integer, Double>> arr =  iterator.next();
+			if(!adjacency.isActive(adjacency.getGroupLabel(CSRAdjacency.OUT, g)))
+				continue;
+			IntRange arr = adjacency.getGroup(CSRAdjacency.OUT, g);
 			for (int i = 0; i < arr.size(); i++) 
 			{
 				System.out.println("Node: "+ID+" is within reach of Node "+arr.get(i));
 			}
-			
 		}
-		
 	}
 	
-	public void setReachableNodes(DijkstraEngine dj,HashMap<Integer, HashMap<Integer,myNode>> freqNodesByLabel, HPListGraph graph)
+	public boolean hasReachableNodes()
 	{
-		for (Iterator<  java.util.Map.Entry< Integer, HashMap<Integer,myNode> > >  it= freqNodesByLabel.entrySet().iterator(); it.hasNext();) 
-		{
-			java.util.Map.Entry< Integer, HashMap<Integer,myNode> > ar =  it.next();
-			HashMap<Integer,myNode> tmp = ar.getValue();
-
-			for (Iterator<myNode> iterator = tmp.values().iterator(); iterator.hasNext();) 
-			{
-				myNode node =  iterator.next();
-				if(ID==node.getID())
-					continue;
-				double dist=dj.getShortestDistance(node.getID());
-				if(dist!=Double.MAX_VALUE )
-				{
-					if(graph.getEdgeLabel(ID, node.getID())!=null)
-					{
-						double edgeLabel = (Double)graph.getEdgeLabel(ID, node.getID());
-						addreachableNode(node, edgeLabel);
-					}
-					else
-					{
-						addreachableNode(node, 1);
-					}
-				}
-			}
-		}
+		return isActive() && adjacency.hasNeighbors(CSRAdjacency.OUT, ID);
 	}
 	
-	/**
-	 * a fast set reachable function
-	 * @param graph
-	 * @param freqNodesByLabel
-	 */
-	//ORIGINAL
-	public void xsetReachableNodes_1hop(Graph graph,HashMap<Integer, HashMap<Integer,myNode>> freqNodesByLabel)
+	public boolean isWithinTheRangeOf(int NodeIndex,int nodeLabel)
 	{
-		//get edge for each node
-		IntIterator it= graph.getListGraph().getOutEdgeIndices(getID());
-		//ALE, we are going through all edges where the node is present, checking if they're frequent, and if they are, adding them to its reachableNodes map
-		for (; it.hasNext();) 
+		if(!isActive() || !adjacency.isActive(nodeLabel))
+			return false;
+		for (int g = adjacency.getFirstGroup(CSRAdjacency.OUT, ID); g < adjacency.getLastGroup(CSRAdjacency.OUT, ID); g++) 
 		{
-			int edge =  it.next(); //ALE, we fetch node's edge ID
-			//ALE, graph.getListGraph().getOtherNode(edge, getID()): given the edge ID and the node's ID, we find the ID of the other node this node is connected to. Can be child or parent.
-			myNode otherNode = graph.getNode(graph.getListGraph().getOtherNode(edge, getID()));
-			//ALE, then we check if this node is frequent, by checking if its label is actually present in freqNodesByLabel map
-			if(freqNodesByLabel.containsKey(otherNode.getLabel()))
-					addreachableNode(otherNode, graph.getListGraph().getEdgeLabel(getID(), otherNode.getID()));
-			
+			if(adjacency.getGroupLabel(CSRAdjacency.OUT, g)==nodeLabel && adjacency.getGroup(CSRAdjacency.OUT, g).contains(NodeIndex))
+				return true;
 		}
+		return false;
 	}
-	
-	//ALE modified to recalculate the reachable nodes for each node every time freqThreshold value changes 
-	public void setReachableNodes_1hop(Graph graph,HashMap<Integer, HashMap<Integer,myNode>> freqNodesByLabel)
+	 
+	//ALE the outgoing nodes with this label and edge label, sorted by ID (a view of the adjacency, do not modify)
+	public IntRange getRechableWithNodeIDs(int label, double edgeLabel)
 	{
-		//get edge for each node
-		IntIterator it= graph.getListGraph().getOutEdgeIndices(getID());
-		//ALE, we are going through all edges where the node is present, checking if they're frequent, and if they are, adding them to its reachableNodes map
-		for (; it.hasNext();) 
-		{
-			int edge =  it.next(); //ALE, we fetch node's edge ID
-			//ALE, graph.getListGraph().getOtherNode(edge, getID()): given the edge ID and the node's ID, we find the ID of the other node this node is connected to. Can be child or parent.
-			myNode otherNode = graph.getNode(graph.getListGraph().getOtherNode(edge, getID()));
-			//ALE, then we check if this node is frequent, by checking if its label is actually present in freqNodesByLabel map
-			if(freqNodesByLabel.containsKey(otherNode.getLabel()))
-					addreachableNode(otherNode, graph.getListGraph().getEdgeLabel(getID(), otherNode.getID()));
-			else
-			{
-				//ALE IMPORTANT CHANGE from original version
-				//if the label is not frequent as for the current freq value, try to remove it from our reachable nodes
-				//this is key for the tool to work with multiple changing freq values
-				if(reachableNodes != null && reachableNodes.containsKey(otherNode.getLabel()))
-					reachableNodes.remove(otherNode.getLabel());
-				if(reachedBYNodes != null && reachedBYNodes.containsKey(otherNode.getLabel()))
-					reachedBYNodes.remove(otherNode.getLabel());
-					
-			}
-			
-		}
+		if(!isActive()) return IntRange.EMPTY;
+		return adjacency.getNeighbors(CSRAdjacency.OUT, ID, label, edgeLabel);
 	}
 	
-	public boolean hasReachableNodes()
+	//ALE the ingoing nodes with this label and edge label, sorted by ID (a view of the adjacency, do not modify)
+	public IntRange getRechableByNodeIDs(int label, double edgeLabel)
 	{
-		if(reachableNodes==null)
-			return false;
-		else
-			return true;
+		if(!isActive()) return IntRange.EMPTY;
+		return adjacency.getNeighbors(CSRAdjacency.IN, ID, label, edgeLabel);
 	}
 	
-	public boolean isWithinTheRangeOf(int NodeIndex,int nodeLabel)
+	//ALE the group of the adjacency (see getAdjacency) holding the nodes of getRechableWithNodeIDs (CSRAdjacency.OUT) or 
+	//getRechableByNodeIDs (CSRAdjacency.IN), -1 if there are none
+	public int getReachableGroup(int direction, int label, double edgeLabel)
 	{
-		if(reachableNodes.get(nodeLabel)==null)
-			return false;
-		return reachableNodes.get(nodeLabel).contains(NodeIndex);
+		if(!isActive()) return -1;
+		return adjacency.getNeighborGroup(direction, ID, label, edgeLabel);
 	}
-	 
-	public ArrayList<MyPair<Integer, Double>> getRechableWithNodeIDs(int label, double edgeLabel)
-	{
-		if(reachableNodes==null) return new ArrayList<MyPair<Integer, Double>>();
-		
-		ArrayList<MyPair<Integer, Double>> tempArr = new ArrayList<MyPair<Integer, Double>>();
-		tempArr.addAll(reachableNodes.get(label));
-		for(int j=0;j<tempArr.size();j++)
-		{
-			MyPair<Integer, Double> mp = tempArr.get(j);
-			if(mp.getB().doubleValue()!=edgeLabel)
-			{
-				tempArr.remove(j);
-				j--;
-			}
-		}
-		return tempArr;
-	}
-	 
-	 public HashMap<Integer, ArrayList<MyPair<Integer, Double>>> getReachableWithNodes()
-	 {
-		 return reachableNodes;
-	 }
-	 
-	 public HashMap<Integer, ArrayList<MyPair<Integer, Double>>> getReachableByNodes()
-	 {
-		 return reachedBYNodes;
-	 }
 	
-	 public ArrayList<MyPair<Integer, Double>> getRechableByNodeIDs(int label, double edgeLabel)
+	public CSRAdjacency getAdjacency()
 	{
-		if(reachedBYNodes==null) return new ArrayList<MyPair<Integer, Double>>();
-
-		ArrayList<MyPair<Integer, Double>> tempArr = new ArrayList<MyPair<Integer, Double>>();
-		tempArr.addAll(reachedBYNodes.get(label));
-		for(int j=0;j<tempArr.size();j++)
-		{
-			MyPair<Integer, Double> mp = tempArr.get(j);
-			if(mp.getB().doubleValue()!=edgeLabel)
-			{
-				tempArr.remove(j);
-				j--;
-			}
-		}
-		return tempArr;
+		return adjacency;
 	}
 	 
 	//ALE
 	 public Set<Integer> getChildrenIDs()
 	 {
 		 Set<Integer> childrenIDs = new HashSet<Integer>();
-		 for (Entry<Integer, ArrayList<MyPair<Integer, Double>>> entry : reachableNodes.entrySet())
+		 if(!isActive())
+			 return childrenIDs;
+		 for (int g = adjacency.getFirstGroup(CSRAdjacency.OUT, ID); g < adjacency.getLastGroup(CSRAdjacency.OUT, ID); g++) 
 		 {
-			 ArrayList<MyPair<Integer, Double>> arrayIDs = entry.getValue();
+			 if(!adjacency.isActive(adjacency.getGroupLabel(CSRAdjacency.OUT, g)))
+				 continue;
+			 IntRange arrayIDs = adjacency.getGroup(CSRAdjacency.OUT, g);
 			 for(int i = 0; i < arrayIDs.size(); i++)
 			 {
-				 childrenIDs.add(arrayIDs.get(i).getA()); //this is the ID in the MyPair
+				 childrenIDs.add(arrayIDs.get(i));
 			 }
-			 
 		 }
 	     return childrenIDs;
 	 }
@@ -137,7 +137,7 @@ public class Decomposer<NodeType, EdgeType>
 						}
 						
 						//ALE edges will be added to connectedComp and pushed into the DFSstack to continue exploration of connected elements
-						connectedComp.addEdgeIndex(currentNodeID, otherNode, (EdgeType)"1", newGraph.getDirection(edge,currentNodeIDmapping));
+						connectedComp.addEdgeIndex(currentNodeID, otherNode, newGraph.getEdgeLabel(edge), newGraph.getDirection(edge,currentNodeIDmapping));
 						
 						DFSstack.push(otherNodeMapping);
 					}
@@ -25,7 +25,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Map.Entry;
 
@@ -34,9 +33,11 @@ import utilities.Settings;
 
 import CSP.DFSSearch;
 import CSP.Variable;
-import CSP.VariablePair;
+import CSP.ArcConsistency;
 import dataStructures.ConnectedComponent;
 import dataStructures.Graph;
+import dataStructures.IntRange;
+import dataStructures.NodeSet;
 import dataStructures.Query;
 import dataStructures.myNode;
 
@@ -53,7 +54,7 @@ public class SPpruner
 	}
 	
 	
-	public void getPrunedLists(ArrayList<HashMap<Integer,myNode>> candidatesByNodeID, Query qry)
+	public void getPrunedLists(ArrayList<NodeSet> candidatesByNodeID, Query qry)
 	{
 		
 		ArrayList<ConnectedComponent> cls= qry.getConnectedLabels();
@@ -75,21 +76,21 @@ public class SPpruner
 			variables[nodeB].addConstrainedBy(nodeA, c.getEdgeLabel());
 		}
 		
-		AC_3_New(variables, -1);
+		new ArcConsistency(variables).run(-1);
 	}
 	
 	
-	public void getPrunedLists(HashMap<Integer,HashMap<Integer,myNode>> nodesByLabel, Query qry)
+	public void getPrunedLists(HashMap<Integer,NodeSet> nodesByLabel, Query qry)
 	{
 		System.out.println("called Automorphism pruned lists");
-		HashMap<Integer, HashMap<Integer,myNode>> pruned= new HashMap<Integer, HashMap<Integer,myNode>>();// QueryID -> NodeID->NODE
+		HashMap<Integer, NodeSet> pruned= new HashMap<Integer, NodeSet>();// QueryID -> NodeIDs
 		ArrayList<ConnectedComponent> cls= qry.getConnectedLabels();
 				
 		//refine according to nodeLabels
 		for (int i = 0; i < qry.getListGraph().getNodeCount(); i++) 
 		{
 			int label= qry.getListGraph().getNodeLabel(i);
-			pruned.put(i, (HashMap<Integer,myNode>)nodesByLabel.get(label).clone());
+			pruned.put(i, new NodeSet(nodesByLabel.get(label)));
 		}
 		
 		//refine according to degree !!
@@ -129,13 +130,12 @@ public class SPpruner
 			HashMap<Integer, Integer> degreeOutCons= nodeOutLabelDegrees.get(i);
 			HashMap<Integer, Integer> degreeInCons= nodeInLabelDegrees.get(i);
 			
-			HashMap<Integer,myNode> candidates=pruned.get(i);
+			NodeSet candidates=pruned.get(i);
 			boolean isValidNode=true;
 			
-			for (Iterator<Entry<Integer, myNode>> it = candidates.entrySet().iterator(); it.hasNext();)
+			for (Iterator<myNode> it = candidates.iterator(); it.hasNext();)
 			{
-				Entry<Integer, myNode> nodeEntry=it.next();
-				myNode node=nodeEntry.getValue();
+				myNode node=it.next();
 				isValidNode=true;
 				if(degreeOutCons!=null)
 				for (Iterator<Entry<Integer, Integer>> iterator = degreeOutCons.entrySet().iterator(); iterator.hasNext();) 
@@ -181,16 +181,31 @@ public class SPpruner
 			variables[nodeB].addConstrainedBy(nodeA, c.getEdgeLabel());
 		}
 		
-		AC_3_New(variables, -1);
+		new ArcConsistency(variables).run(-1);
 	}
 	
 	
 	public void getPrunedLists(Graph graph, Query qry,HashMap<Integer, HashSet<Integer>> nonCandidates)
+	{
+		getPrunedLists(graph, qry, nonCandidates, null);
+	}
+	
+	/**
+	 * ALE - same, but the variables of the parent pattern (the first siblings.size() ones) start from its domains 
+	 * instead of all the nodes with their label: a node that is not in the domain of the parent can not be in the child's.
+	 * These domains already have the degrees of the parent, only the variables with other degrees are refined again.
+	 */
+	public void getPrunedLists(Graph graph, Query qry,HashMap<Integer, HashSet<Integer>> nonCandidates, SiblingDomains siblings)
 	{
 		System.out.println("called pruned lists");
-		HashMap<Integer, HashMap<Integer,myNode>> pruned= new HashMap<Integer, HashMap<Integer,myNode>>();// QueryID -> NodeID->NODE
+		HashMap<Integer, NodeSet> pruned= new HashMap<Integer, NodeSet>();// QueryID -> NodeIDs
 
 		ArrayList<ConnectedComponent> cls= qry.getConnectedLabels();
+		
+		//refine according to degree !!
+		HashMap<Integer, HashMap<Integer, Integer>> nodeOutLabelDegrees= new HashMap<Integer, HashMap<Integer,Integer>>();//nodeID-->(Label,Degree)
+		HashMap<Integer, HashMap<Integer, Integer>> nodeInLabelDegrees= new HashMap<Integer, HashMap<Integer,Integer>>();
+		countLabelDegrees(cls, nodeOutLabelDegrees, nodeInLabelDegrees);
 				
 		//refine according to nodeLabels
 		for (int i = 0; i < qry.getListGraph().getNodeCount(); i++) 
@@ -201,14 +216,39 @@ public class SPpruner
 				System.out.println("FREQNODESBYLABEL.getLabel(" + label +") is null");
 				System.out.println("size of FREQNODESBYLABEL " + graph.getFreqNodesByLabel().size());
 			}
-			pruned.put(i, (HashMap<Integer,myNode>)graph.getFreqNodesByLabel().get(label).clone());
+			HashMap<Integer, Integer> degreeOutCons= nodeOutLabelDegrees.get(i);
+			HashMap<Integer, Integer> degreeInCons= nodeInLabelDegrees.get(i);
+			NodeSet candidates;
+			if(siblings!=null && i<siblings.size())
+			{
+				candidates= new NodeSet(siblings.getDomain(i));
+				if(!siblings.hasSameDegrees(i, degreeOutCons, degreeInCons))
+					refineByDegree(candidates, degreeOutCons, degreeInCons);
+			}
+			else if(siblings!=null)
+			{
+				NodeSet shared= siblings.getNewDomain(label, degreeOutCons, degreeInCons);
+				if(shared==null)
+				{
+					shared= new NodeSet(graph.getNodeSetByLabel(label));
+					refineByDegree(shared, degreeOutCons, degreeInCons);
+					siblings.putNewDomain(label, degreeOutCons, degreeInCons, shared);
+				}
+				candidates= new NodeSet(shared);
+			}
+			else
+			{
+				candidates= new NodeSet(graph.getNodeSetByLabel(label));
+				refineByDegree(candidates, degreeOutCons, degreeInCons);
+			}
+			pruned.put(i, candidates);
 		}
 		
 		for (Iterator<Entry<Integer, HashSet<Integer>>> iterator = nonCandidates.entrySet().iterator(); iterator.hasNext();) 
 		{
 			Entry<Integer, HashSet<Integer>> entry = iterator.next();
 			int qryID= entry.getKey();
-			HashMap<Integer,myNode> prunedCands= pruned.get(qryID); //ALE noncandidate in pruned
+			NodeSet prunedCands= pruned.get(qryID); //ALE noncandidate in pruned
 			HashSet<Integer> nonCands= entry.getValue();
 			for (Iterator iterator2 = nonCands.iterator(); iterator2.hasNext();) 
 			{
@@ -216,11 +256,30 @@ public class SPpruner
 				prunedCands.remove(integer);
 			}
 		}
-				
-		//refine according to degree !!
-		HashMap<Integer, HashMap<Integer, Integer>> nodeOutLabelDegrees= new HashMap<Integer, HashMap<Integer,Integer>>();//nodeID-->(Label,Degree)
-		HashMap<Integer, HashMap<Integer, Integer>> nodeInLabelDegrees= new HashMap<Integer, HashMap<Integer,Integer>>();
+		
+		//create the variables
+		variables= new Variable[qry.getListGraph().getNodeCount()];
+		for (int i = 0; i < qry.getListGraph().getNodeCount(); i++) 
+		{
+			int label= qry.getListGraph().getNodeLabel(i);
+			variables[i]= new Variable(i, label, pruned.get(i),null,null);
+		}
 		
+		for (int i = 0; i < cls.size(); i++) 
+		{
+			ConnectedComponent c = cls.get(i);
+			int nodeA=c.getIndexA();
+			int nodeB=c.getIndexB();
+			
+			variables[nodeA].addConstraintWith(nodeB, c.getEdgeLabel());
+			variables[nodeB].addConstrainedBy(nodeA, c.getEdgeLabel());
+		}
+	}
+	
+	//ALE - the number of neighbors with each label that every node of the query has, by edge direction
+	static void countLabelDegrees(ArrayList<ConnectedComponent> cls, HashMap<Integer, HashMap<Integer, Integer>> nodeOutLabelDegrees, 
+			HashMap<Integer, HashMap<Integer, Integer>> nodeInLabelDegrees)
+	{
 		for (int i = 0; i < cls.size(); i++) 
 		{
 			ConnectedComponent c = cls.get(i);
@@ -248,190 +307,43 @@ public class SPpruner
 			nodeAmap.put(c.getLabelB(), degreeA+1);
 			nodeBmap.put(c.getLabelA(), degreeB+1);
 		}
-		
-		for (int i = 0; i < qry.getListGraph().getNodeCount(); i++) 
-		{
-			HashMap<Integer, Integer> degreeOutCons= nodeOutLabelDegrees.get(i);
-			HashMap<Integer, Integer> degreeInCons= nodeInLabelDegrees.get(i);
-			
-			HashMap<Integer,myNode> candidates=pruned.get(i);
-			boolean isValidNode=true;
-			
-			for (Iterator<Entry<Integer, myNode>> it = candidates.entrySet().iterator(); it.hasNext();)
-			{
-				Entry<Integer, myNode> nodeEntry=it.next();
-				myNode node=nodeEntry.getValue();
-				isValidNode=true;
-				if(degreeOutCons!=null)
-				for (Iterator<Entry<Integer, Integer>> iterator = degreeOutCons.entrySet().iterator(); iterator.hasNext();) 
-				{
-					Entry<Integer, Integer> entry =  iterator.next();
-					int label=entry.getKey();
-					int degree=entry.getValue();
-					
-					if(node.getOutDegree(label)<degree)
-					{isValidNode=false; break;}
-				}
-				if(isValidNode && degreeInCons!=null)
-				{
-					for (Iterator<Entry<Integer, Integer>> iterator = degreeInCons.entrySet().iterator(); iterator.hasNext();) 
-					{
-						Entry<Integer, Integer> entry =  iterator.next();
-						int label=entry.getKey();
-						int degree=entry.getValue();
-						
-						if(node.getinDegree(label)<degree)
-						{isValidNode=false; break;}
-					}
-				}
-				if(isValidNode==false)
-					it.remove();
-			}
-		}
-		
-		//create the variables
-		variables= new Variable[qry.getListGraph().getNodeCount()];
-		for (int i = 0; i < qry.getListGraph().getNodeCount(); i++) 
-		{
-			int label= qry.getListGraph().getNodeLabel(i);
-			variables[i]= new Variable(i, label, pruned.get(i),null,null);
-		}
-		
-		for (int i = 0; i < cls.size(); i++) 
-		{
-			ConnectedComponent c = cls.get(i);
-			int nodeA=c.getIndexA();
-			int nodeB=c.getIndexB();
-			
-			variables[nodeA].addConstraintWith(nodeB, c.getEdgeLabel());
-			variables[nodeB].addConstrainedBy(nodeA, c.getEdgeLabel());
-		}
 	}
 	
-	//insert vp into order according to their variable values length
-	private void insertInOrder(LinkedList<VariablePair> Q, VariablePair vp)
+	//ALE - removes the candidates with fewer neighbors of some label than the query node
+	private static void refineByDegree(NodeSet candidates, HashMap<Integer, Integer> degreeOutCons, HashMap<Integer, Integer> degreeInCons)
 	{
-		int i = 0;
-		Iterator itr = Q.iterator();
-	    while(itr.hasNext())
-	    {
-	    	VariablePair tempVP = (VariablePair)itr.next();
-	    	if(tempVP.getMinValuesLength()>vp.getMinValuesLength())
-			{
-				Q.add(i, vp);
-				return;
-			}
-	    	i++;
-	    }
-	    Q.add(i, vp);
-	}
-	
-	private void AC_3_New(Variable[] input, int freqThreshold)
-	{
-		LinkedList<VariablePair> Q= new LinkedList<VariablePair>();
-		HashSet<String> contains = new HashSet<String> ();
-		VariablePair vp;
-		//initialize...
-		for (int i = 0; i < input.length; i++) 
+		if(degreeOutCons==null && degreeInCons==null)
+			return;
+		boolean isValidNode=true;
+		for (Iterator<myNode> it = candidates.iterator(); it.hasNext();)
 		{
-			Variable currentVar= input[i];
-			ArrayList<MyPair<Integer, Double>> list=currentVar.getDistanceConstrainedWith();
-			for (int j = 0; j < list.size(); j++) 
+			myNode node=it.next();
+			isValidNode=true;
+			if(degreeOutCons!=null)
+			for (Iterator<Entry<Integer, Integer>> iterator = degreeOutCons.entrySet().iterator(); iterator.hasNext();) 
 			{
-				Variable consVar=variables[list.get(j).getA()];
-				vp =new VariablePair(currentVar,consVar,list.get(j).getB());
-				Q.add(vp);
-				contains.add(vp.getString());
+				Entry<Integer, Integer> entry =  iterator.next();
+				int label=entry.getKey();
+				int degree=entry.getValue();
 				
+				if(node.getOutDegree(label)<degree)
+				{isValidNode=false; break;}
 			}
-		}
-		
-		while(!Q.isEmpty())
-		{
-			System.out.println(Q.size());
-			vp = Q.poll();
-			contains.remove(vp.getString());
-			Variable v1 = vp.v1;
-			Variable v2 = vp.v2;
-
-			if(v1.getListSize()<freqThreshold || v2.getListSize()<freqThreshold) return;
-			int oldV1Size = v1.getListSize();
-			int oldV2Size = v2.getListSize();
-			refine_Newest(v1, v2, vp.edgeLabel, freqThreshold);
-			if(oldV1Size!=v1.getListSize())
+			if(isValidNode && degreeInCons!=null)
 			{
-				if(v1.getListSize()<freqThreshold) return;
-				//add to queue
-				ArrayList<MyPair<Integer, Double>> list=v1.getDistanceConstrainedBy();
-				for (int j = 0; j < list.size(); j++) 
+				for (Iterator<Entry<Integer, Integer>> iterator = degreeInCons.entrySet().iterator(); iterator.hasNext();) 
 				{
-					Integer tempMP = list.get(j).getA(); 
-					Variable consVar=variables[tempMP];
-					vp =new VariablePair(consVar,v1,list.get(j).getB());
-					if(!contains.contains(vp.getString()))
-					{
-						insertInOrder(Q, vp);
-						//add new variables at the begining
-						contains.add(vp.getString());
-					}
-				}
-			}
-			if(oldV2Size!=v2.getListSize())
-			{
-				if(v2.getListSize()<freqThreshold) return;
-				//add to queue
-				ArrayList<MyPair<Integer, Double>> list=v2.getDistanceConstrainedBy();
-				for (int j = 0; j < list.size(); j++) 
-				{
-					Variable consVar=variables[list.get(j).getA()];
-					vp =new VariablePair(consVar,v2, list.get(j).getB());
-					if(!contains.contains(vp.getString()))
-					{
-						insertInOrder(Q, vp);
-						contains.add(vp.getString());
-					}
-				}
-			}
-		}
-	}
-	
-	/**
-	 * should be the fatsest version
-	 */
-	private void refine_Newest(Variable v1, Variable v2, double edgeLabel, int freqThreshold)
-	{
-		HashMap<Integer,myNode> listA,listB;
-		
-		int labelB=v2.getLabel();//lebel of my neighbor
-		listA=v1.getList();//the first column
-		listB=v2.getList();//the second column
-		HashMap<Integer,myNode> newList= new HashMap<Integer,myNode>();//the newly assigned first column
-		HashMap<Integer, myNode> newReachableListB = new HashMap<Integer, myNode>();//the newly asigned second column
-		
-		//go over the first column
-		for (Iterator<myNode> iterator = listA.values().iterator(); iterator.hasNext();)
-		{
-			myNode n1= iterator.next();//get the current node
-			if(n1.hasReachableNodes()==false)//prune a node without reachable nodes
-				continue;
-			
-			ArrayList<MyPair<Integer, Double>> neighbors = n1.getRechableWithNodeIDs(labelB, edgeLabel);//get a list of current node's neighbors
-			for (Iterator<MyPair<Integer, Double>> iterator2 = neighbors.iterator(); iterator2.hasNext();)//go over each neighbor
-			{
-				MyPair<Integer, Double> mp = iterator2.next();//get current neighbor details
-				//check the second column if it contains the current neighbor node
-				if(listB.containsKey(mp.getA()))
-				{
-					//if true, put the current node in the first column, and the neighbor node in the second column
-					newList.put(n1.getID(),n1);
-					newReachableListB.put(mp.getA(), listB.get(mp.getA()));
+					Entry<Integer, Integer> entry =  iterator.next();
+					int label=entry.getKey();
+					int degree=entry.getValue();
+					
+					if(node.getinDegree(label)<degree)
+					{isValidNode=false; break;}
 				}
 			}
+			if(isValidNode==false)
+				it.remove();
 		}
-		
-		//set the newly assigned columns
-		v1.setList(newList);
-		v2.setList(newReachableListB);
 	}
 	
 	public static void printSPs(HashMap<Integer, HashMap<Integer,myNode>> pruned)
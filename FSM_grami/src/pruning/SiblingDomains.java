@@ -0,0 +1,143 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pruning;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import CSP.Variable;
+import dataStructures.NodeSet;
+import dataStructures.Query;
+
+/**
+ * ALE - what all the children of a pattern share when their domains are built, computed once for the parent: 
+ * its domains (variable i of a child is variable i of the parent) and the label degrees its variables need.
+ * These domains already passed the degree refinement of the parent, so a child only refines again the variables 
+ * whose degrees its new edge changes, and its new variable. The new variable has one edge, so its refined domain only 
+ * depends on its label and on the degrees of that edge, siblings that agree on these share it.
+ * Read by the lattice threads (Settings.latticeThreads) at the same time, only the table of new domains changes.
+ */
+public class SiblingDomains 
+{
+	private final Variable[] domains;
+	private final HashMap<Integer, HashMap<Integer, Integer>> outDegrees= new HashMap<Integer, HashMap<Integer,Integer>>();
+	private final HashMap<Integer, HashMap<Integer, Integer>> inDegrees= new HashMap<Integer, HashMap<Integer,Integer>>();
+	private final ConcurrentHashMap<DegreesKey, NodeSet> newDomains= new ConcurrentHashMap<DegreesKey, NodeSet>();
+	
+	/**
+	 * @param domains the domains of the parent after its search (they are not modified)
+	 * @param parent the parent pattern
+	 */
+	public SiblingDomains(Variable[] domains, Query parent)
+	{
+		this.domains=domains;
+		SPpruner.countLabelDegrees(parent.getConnectedLabels(), outDegrees, inDegrees);
+	}
+	
+	public int size()
+	{
+		return domains.length;
+	}
+	
+	public NodeSet getDomain(int index)
+	{
+		return domains[index].getList();
+	}
+	
+	//true if the variable needs the same degrees in the child as in the parent
+	boolean hasSameDegrees(int index, HashMap<Integer, Integer> out, HashMap<Integer, Integer> in)
+	{
+		return same(outDegrees.get(index), out) && same(inDegrees.get(index), in);
+	}
+	
+	private static boolean same(HashMap<Integer, Integer> a, HashMap<Integer, Integer> b)
+	{
+		if(a==null || b==null)
+			return a==b;
+		return a.equals(b);
+	}
+	
+	/**
+	 * @return the refined domain of a new variable with these degrees, it must be copied before it is modified 
+	 */
+	NodeSet getNewDomain(int label, HashMap<Integer, Integer> out, HashMap<Integer, Integer> in)
+	{
+		return newDomains.get(new DegreesKey(label, out, in));
+	}
+	
+	void putNewDomain(int label, HashMap<Integer, Integer> out, HashMap<Integer, Integer> in, NodeSet domain)
+	{
+		newDomains.putIfAbsent(new DegreesKey(label, out, in), domain);
+	}
+	
+	//label of a new variable and its degrees, as (label, degree) pairs sorted by label for each direction
+	private static class DegreesKey
+	{
+		private final int label;
+		private final int[] out;
+		private final int[] in;
+		private final int hash;
+		
+		DegreesKey(int label, HashMap<Integer, Integer> out, HashMap<Integer, Integer> in)
+		{
+			this.label=label;
+			this.out=toPairs(out);
+			this.in=toPairs(in);
+			hash=(label*31+Arrays.hashCode(this.out))*31+Arrays.hashCode(this.in);
+		}
+		
+		private static int[] toPairs(HashMap<Integer, Integer> degrees)
+		{
+			if(degrees==null)
+				return new int[0];
+			long[] pairs= new long[degrees.size()];
+			int n=0;
+			for (Entry<Integer, Integer> entry : degrees.entrySet()) 
+				pairs[n++]= ((long)entry.getKey()<<32)|(entry.getValue()&0xFFFFFFFFL);
+			Arrays.sort(pairs);
+			int[] values= new int[2*pairs.length];
+			for (int i = 0; i < pairs.length; i++) 
+			{
+				values[2*i]= (int)(pairs[i]>>32);
+				values[2*i+1]= (int)pairs[i];
+			}
+			return values;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			if(this==o)
+				return true;
+			if(!(o instanceof DegreesKey))
+				return false;
+			DegreesKey other= (DegreesKey)o;
+			return label==other.label && hash==other.hash && Arrays.equals(out, other.out) && Arrays.equals(in, other.in);
+		}
+	}
+}
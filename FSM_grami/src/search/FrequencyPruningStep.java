@@ -16,9 +16,12 @@ package search;
 
 import java.util.Collection;
 
+import dataStructures.DFSCode;
 import dataStructures.Extension;
 import dataStructures.Frequency;
 import dataStructures.Frequented;
+import dataStructures.IntFrequency;
+import dataStructures.StaticData;
 
 
 /**
@@ -63,12 +66,16 @@ public class FrequencyPruningStep<NodeType, EdgeType> extends
 	public void call(final SearchLatticeNode<NodeType, EdgeType> node,
 			final Collection<Extension<NodeType, EdgeType>> extensions) {
 		final Frequency freq = ((Frequented) node).frequency();  //HERE THE FREQUENCY CALCULATION OCCURS !!!
+		//ALE during a top-k search the threshold rises
+		final Frequency min = TopKPatterns.isOn() ? new IntFrequency(TopKPatterns.getThreshold()) : this.min;
 		if (max != null && max.compareTo(freq) < 0) {
 			node.store(false);
 		}
 		if (min.compareTo(freq) > 0) {
 			node.store(false);
 		} else {
+			if(TopKPatterns.isOn() && node.getHPlistGraph().getNodeCount() >= StaticData.minSizeOfGraphs)
+				TopKPatterns.offer((DFSCode<NodeType, EdgeType>) node);
 			callNext(node, extensions);
 		}
 	}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+import utilities.Settings;
+
+import AlgorithmInterface.Algorithm;
+
+import dataStructures.DFSCode;
+import dataStructures.HPListGraph;
+import dataStructures.StaticData;
+
+/**
+ * ALE - the search of RecursiveStrategy on Settings.latticeThreads threads. Every seed and every child is a task 
+ * of a work-stealing pool, so an idle thread takes over the pending subtrees of a busy one.
+ * The mining chain keeps state per call (RightMostExtension.children), so each thread builds its own chain.
+ * Each task returns what its subtree found, and a parent appends the results of its children in their order 
+ * before its own, so the result is the same list, in the same order, as the one of RecursiveStrategy.
+ */
+public class ParallelRecursiveStrategy<NodeType, EdgeType> implements
+		Strategy<NodeType, EdgeType> {
+
+	//ALE - reused by the following searches (one per frequency threshold)
+	private static ForkJoinPool latticePool;
+	
+	private ThreadLocal<Extender<NodeType, EdgeType>> extenders;
+	
+	private ArrayList<DFSCode<NodeType, EdgeType>> aleRet;
+	
+	//the stored nodes of a subtree, in the order RecursiveStrategy stores them
+	private static class Found<NodeType, EdgeType>
+	{
+		final ArrayList<HPListGraph<NodeType, EdgeType>> graphs= new ArrayList<HPListGraph<NodeType, EdgeType>>();
+		final ArrayList<DFSCode<NodeType, EdgeType>> codes= new ArrayList<DFSCode<NodeType, EdgeType>>();
+		
+		void addAll(Found<NodeType, EdgeType> other)
+		{
+			graphs.addAll(other.graphs);
+			codes.addAll(other.codes);
+		}
+	}
+	
+	private class NodeTask extends RecursiveTask<Found<NodeType, EdgeType>>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final SearchLatticeNode<NodeType, EdgeType> node;
+		
+		NodeTask(SearchLatticeNode<NodeType, EdgeType> node)
+		{
+			this.node=node;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		protected Found<NodeType, EdgeType> compute()
+		{
+			node.setThreadNumber(((ForkJoinWorkerThread)Thread.currentThread()).getPoolIndex());
+			final Collection<SearchLatticeNode<NodeType, EdgeType>> tmp = extenders.get().getChildren(node);
+			
+			ArrayList<NodeTask> tasks= new ArrayList<NodeTask>(tmp.size());
+			for (final SearchLatticeNode<NodeType, EdgeType> child : tmp) 
+				tasks.add(new NodeTask(child));
+			invokeAll(tasks);
+			
+			Found<NodeType, EdgeType> found= new Found<NodeType, EdgeType>();
+			for (int i = 0; i < tasks.size(); i++) 
+				found.addAll(tasks.get(i).join());
+			
+			if (node.store()) {
+				//ALE only store it if subgraph is of minSize or bigger (and, in closed or maximal mode, not covered by a child)
+				if(node.getHPlistGraph().getNodeCount() >= StaticData.minSizeOfGraphs && !RecursiveStrategy.isRedundant(node, tmp))
+				{
+					node.store(found.graphs);
+					found.codes.add((DFSCode<NodeType, EdgeType>)node);
+				}
+			} else {
+				node.release();
+			}
+			node.finalizeIt();
+			return found;
+		}
+	}
+	
+	private class SeedsTask extends RecursiveTask<Found<NodeType, EdgeType>>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final ArrayList<NodeTask> seeds;
+		
+		SeedsTask(ArrayList<NodeTask> seeds)
+		{
+			this.seeds=seeds;
+		}
+		
+		@Override
+		protected Found<NodeType, EdgeType> compute()
+		{
+			invokeAll(seeds);
+			Found<NodeType, EdgeType> found= new Found<NodeType, EdgeType>();
+			for (int i = 0; i < seeds.size(); i++) 
+				found.addAll(seeds.get(i).join());
+			return found;
+		}
+	}
+	
+	public Collection<HPListGraph<NodeType, EdgeType>> search(
+			final Algorithm<NodeType, EdgeType> algo, final int freqThresh) {
+		extenders= new ThreadLocal<Extender<NodeType, EdgeType>>()
+		{
+			@Override
+			protected Extender<NodeType, EdgeType> initialValue()
+			{
+				return algo.getExtender(freqThresh);
+			}
+		};
+		
+		//the initials map is not thread safe, so the seeds are taken out of it before the search starts
+		ArrayList<NodeTask> seeds= new ArrayList<NodeTask>();
+		for (final Iterator<SearchLatticeNode<NodeType, EdgeType>> it = algo
+				.initialNodes(); it.hasNext();) {
+			final SearchLatticeNode<NodeType, EdgeType> code = it.next();
+			System.out.println("Searching into: "+code);
+			seeds.add(new NodeTask(code));
+			it.remove();
+		}
+		
+		Found<NodeType, EdgeType> found= getLatticePool().invoke(new SeedsTask(seeds));
+		aleRet= found.codes;
+		extenders= null;
+		
+		System.out.println("\n\n\nALE after loop... size of ret is " + found.graphs.size() + " and aleRet is " + aleRet.size());
+		return found.graphs;
+	}
+	
+	private static synchronized ForkJoinPool getLatticePool()
+	{
+		if(latticePool==null || latticePool.getParallelism()!=Settings.latticeThreads)
+		{
+			//the tasks already given to the old pool still run
+			if(latticePool!=null)
+				latticePool.shutdown();
+			latticePool= new ForkJoinPool(Settings.latticeThreads);
+		}
+		return latticePool;
+	}
+	
+	public ArrayList<DFSCode<NodeType, EdgeType>> getFSInfo()
+	{
+		return aleRet;
+	}
+
+}
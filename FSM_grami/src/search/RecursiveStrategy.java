@@ -24,10 +24,12 @@ import java.util.Iterator;
 import java.util.Map;
 
 import utilities.DfscodesCache;
+import utilities.Settings;
 
 import AlgorithmInterface.Algorithm;
 
 import dataStructures.DFSCode;
+import dataStructures.Frequented;
 import dataStructures.GSpanEdge;
 import dataStructures.HPListGraph;
 
@@ -130,8 +132,8 @@ public class RecursiveStrategy<NodeType, EdgeType> implements
 		if (node.store()) {
 			System.out.println("ALE, node " + node + " done AND STORED. Store: " + node.store()
 			+ " children " + tmp.size());
-			//ALE only store it if subgraph is of minSize or bigger
-			if(node.getHPlistGraph().getNodeCount() >= StaticData.minSizeOfGraphs)
+			//ALE only store it if subgraph is of minSize or bigger (and, in closed or maximal mode, not covered by a child)
+			if(node.getHPlistGraph().getNodeCount() >= StaticData.minSizeOfGraphs && !isRedundant(node, tmp))
 			{
 				node.store(ret); //ALE we store the fragment into the given set (aka we add it into the arraylist)
 				
@@ -149,6 +151,28 @@ public class RecursiveStrategy<NodeType, EdgeType> implements
 		System.out.println("ALE back to main search()");
 	}
 	
+	/**
+	 * ALE - in maximal mode (Settings.maximalOnly) a node with a frequent child is not stored. In closed mode (Settings.closedOnly)
+	 * a node with a child of the same (exact) support is not stored. Only the children in the search tree are known here, 
+	 * the non canonical extensions are searched from other seeds, so some non closed or non maximal nodes can still be stored.
+	 */
+	static <NodeType, EdgeType> boolean isRedundant(SearchLatticeNode<NodeType, EdgeType> node, Collection<SearchLatticeNode<NodeType, EdgeType>> children)
+	{
+		if(!Settings.closedOnly && !Settings.maximalOnly)
+			return false;
+		for (final SearchLatticeNode<NodeType, EdgeType> child : children) 
+		{
+			//not canonical or not frequent
+			if(!child.store())
+				continue;
+			if(Settings.maximalOnly)
+				return true;
+			if(((Frequented)child).frequency().compareTo(((Frequented)node).frequency())==0)
+				return true;
+		}
+		return false;
+	}
+	
 	//ALE
 	public ArrayList<DFSCode<NodeType, EdgeType>> getFSInfo()
 	{
@@ -42,7 +42,10 @@ import dataStructures.Graph;
 import dataStructures.HPGraph;
 import dataStructures.HPListGraph;
 import dataStructures.HPMutableGraph;
+import dataStructures.IntRange;
+import dataStructures.NodeSet;
 import dataStructures.freqComparator;
+import dataStructures.myNode;
 
 
 /**
@@ -101,13 +104,10 @@ public class RightMostExtension<NodeType, EdgeType> extends
 
 		if (ext == null) {
 			// create new extension
-			 HPMutableGraph<NodeType, EdgeType> ng = (HPMutableGraph<NodeType, EdgeType>) code.getHPlistGraph().clone();
-			// TODO: avoid clone??
-			gEdge.addTo(ng);  //reformulate the form of the new extended fragment!!
+			//ALE the fragment is built by node.extend(ext) at the end of the chain, sharing the parent graph and nonCandidates 
+			//until it passes the canonical check, so nothing is copied here
 			ext = new GSpanExtension<NodeType, EdgeType>();
 			ext.edge=gEdge;
-			ext.frag=new DFSCode<NodeType, EdgeType>(code.getSortedFreqLabels(), code.getSingleGraph(),utilities.Util.clone(code.getNonCandidates())).set((HPListGraph<NodeType, EdgeType>)ng,code.getFirst() , code.getLast(),code.getParents());
-			ext.frag = (DFSCode<NodeType, EdgeType>) code.extend(ext); //PUT THE STRING HERE
 
 			children.put(gEdge, ext);   //TODO push into Children !!!
 		} else {
@@ -160,6 +160,10 @@ public class RightMostExtension<NodeType, EdgeType> extends
 		Variable[] vrs = code.getCurrentVariables();
 		if(vrs==null)
 			System.out.println("aloooooooo");
+		
+		//ALE extensions whose new edge is not found from enough nodes of the parent domains can not be frequent
+		Variable[] domains = code.getDomainVariables();
+		int freqThreshold = code.getFreqThreshold();
 		// find extensions of the last node;
 		{
 			Variable lastVariable=vrs[lastNode];
@@ -186,6 +190,8 @@ public class RightMostExtension<NodeType, EdgeType> extends
 				
 				for(int j=0;j<freqEdgeLabels.size();j++)
 				{
+					if(!isSupported(domains, lastNode, label, freqEdgeLabels.get(j), 1, freqThreshold))
+						continue;
 					final GSpanEdge<NodeType, EdgeType> gEdge = new GSpanEdge<NodeType, EdgeType>().set(lastNode, lastNode+1 , sortedFreqLabels.indexOf(theLabelA), freqEdgeLabels.get(j).intValue(), index, 1, theLabelA, label); 											
 					if ((code.getLast().compareTo(gEdge) < 0))
 					{
@@ -216,6 +222,8 @@ public class RightMostExtension<NodeType, EdgeType> extends
 				int index=currentPoint.y;
 				for(int j=0;j<freqEdgeLabels.size();j++)
 				{
+					if(!isSupported(domains, lastNode, label, freqEdgeLabels.get(j), -1, freqThreshold))
+						continue;
 					final GSpanEdge<NodeType, EdgeType> gEdge = new GSpanEdge<NodeType, EdgeType>().set(lastNode, lastNode+1 , sortedFreqLabels.indexOf(theLabelA), freqEdgeLabels.get(j).intValue(), index, -1, theLabelA, label); 											
 					if ((code.getLast().compareTo(gEdge) < 0))
 					{
@@ -255,6 +263,8 @@ public class RightMostExtension<NodeType, EdgeType> extends
 					int theLabelB=candidateVB.getLabel();
 					for(int j=0;j<freqEdgeLabels.size();j++)
 					{
+						if(!isBackwardSupported(domains, lastNode, candidateVB.getID(), freqEdgeLabels.get(j), 1, freqThreshold))
+							continue;
 						final GSpanEdge<NodeType, EdgeType> gEdge = new GSpanEdge<NodeType, EdgeType>().set(lastNode, candidateVB.getID() , sortedFreqLabels.indexOf(theLabelA), freqEdgeLabels.get(j).intValue(), sortedFreqLabels.indexOf(theLabelB), 1, theLabelA, theLabelB); 											
 						if ((code.getLast().compareTo(gEdge) < 0))
 						{
@@ -296,6 +306,8 @@ public class RightMostExtension<NodeType, EdgeType> extends
 					int theLabelB=candidateVB.getLabel();
 					for(int j=0;j<freqEdgeLabels.size();j++)
 					{
+						if(!isBackwardSupported(domains, lastNode, candidateVB.getID(), freqEdgeLabels.get(j), -1, freqThreshold))
+							continue;
 						final GSpanEdge<NodeType, EdgeType> gEdge = new GSpanEdge<NodeType, EdgeType>().set(lastNode, candidateVB.getID() , sortedFreqLabels.indexOf(theLabelA), freqEdgeLabels.get(j).intValue(), sortedFreqLabels.indexOf(theLabelB), -1, theLabelA, theLabelB); 											
 						if ((code.getLast().compareTo(gEdge) < 0))
 						{
@@ -338,6 +350,8 @@ public class RightMostExtension<NodeType, EdgeType> extends
 				int index=currentPoint.y;
 				for(int j=0;j<freqEdgeLabels.size();j++)
 				{
+					if(!isSupported(domains, ackNode, label, freqEdgeLabels.get(j), 1, freqThreshold))
+						continue;
 					final GSpanEdge<NodeType, EdgeType> gEdge = new GSpanEdge<NodeType, EdgeType>().set(ackNode, lastNode+1 , sortedFreqLabels.indexOf(theLabelA), freqEdgeLabels.get(j).intValue(), index, 1, theLabelA, label);
 					add(gEdge, code, 0);
 				}
@@ -371,6 +385,8 @@ public class RightMostExtension<NodeType, EdgeType> extends
 				int index=currentPoint.y;
 				for(int j=0;j<freqEdgeLabels.size();j++)
 				{
+					if(!isSupported(domains, ackNode, label, freqEdgeLabels.get(j), -1, freqThreshold))
+						continue;
 					final GSpanEdge<NodeType, EdgeType> gEdge = new GSpanEdge<NodeType, EdgeType>().set(ackNode, lastNode+1 , sortedFreqLabels.indexOf(theLabelA), freqEdgeLabels.get(j).intValue(), index, -1, theLabelA, label);
 					add(gEdge, code, 0);
 				}
@@ -378,6 +394,51 @@ public class RightMostExtension<NodeType, EdgeType> extends
 			}
 		} while (ackNode > 0);
 	}
+	/**
+	 * ALE - the support of an extension by a forward edge from nodeIdx (to a new node with this label) is at most 
+	 * the number of nodes of the domain of nodeIdx with such a neighbour (direction 1 for outgoing, -1 for ingoing).
+	 * @return whether that number reaches the threshold (true if the domains are unknown)
+	 */
+	private static boolean isSupported(Variable[] domains, int nodeIdx, int label, double edgeLabel, int direction, int freqThreshold)
+	{
+		if(domains==null)
+			return true;
+		int count=0;
+		for (myNode node : domains[nodeIdx].getList()) 
+		{
+			IntRange neighbors= direction>0 ? node.getRechableWithNodeIDs(label, edgeLabel) : node.getRechableByNodeIDs(label, edgeLabel);
+			if(neighbors.size()>0 && ++count>=freqThreshold)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * ALE - the same for a backward edge from nodeIdx to otherIdx, whose neighbour must be in the domain of otherIdx
+	 */
+	private static boolean isBackwardSupported(Variable[] domains, int nodeIdx, int otherIdx, double edgeLabel, int direction, int freqThreshold)
+	{
+		if(domains==null)
+			return true;
+		NodeSet others= domains[otherIdx].getList();
+		int label= domains[otherIdx].getLabel();
+		int count=0;
+		for (myNode node : domains[nodeIdx].getList()) 
+		{
+			IntRange neighbors= direction>0 ? node.getRechableWithNodeIDs(label, edgeLabel) : node.getRechableByNodeIDs(label, edgeLabel);
+			for (int k = 0; k < neighbors.size(); k++) 
+			{
+				if(others.contains(neighbors.get(k)))
+				{
+					if(++count>=freqThreshold)
+						return true;
+					break;
+				}
+			}
+		}
+		return false;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * 
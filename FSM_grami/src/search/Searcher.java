@@ -26,27 +26,32 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.Vector;
 
 import statistics.Statistics;
 import utilities.MyPair;
 import utilities.Settings;
 import utilities.StopWatch;
 import Dijkstra.*;
+import dataStructures.CSRAdjacency;
 import dataStructures.DFSCode;
 import dataStructures.DFScodeSerializer;
 import dataStructures.Edge;
 import dataStructures.GSpanEdge;
 import dataStructures.Graph;
+import dataStructures.GraphSnapshot;
 import dataStructures.HPListGraph;
 import dataStructures.IntFrequency;
 import dataStructures.MyGraph;
+import dataStructures.PatternKey;
 import dataStructures.gEdgeComparator;
 import dataStructures.myNode;
 
@@ -61,8 +66,9 @@ public class Searcher<NodeType, EdgeType>
 	Map<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>> initials;
 	private int type;
 	public ArrayList<HPListGraph<NodeType, EdgeType>> result;
-	public static Hashtable<Integer, Vector<Integer>> neighborLabels;
-	public static Hashtable<Integer, Vector<Integer>> revNeighborLabels;
+	//ALE - built by initialize() and read only afterwards, so the lattice threads read them without locking
+	public static Map<Integer, List<Integer>> neighborLabels;
+	public static Map<Integer, List<Integer>> revNeighborLabels;
 	ArrayList<DFSCode<NodeType, EdgeType>> fsInfo; //ALE
 	
 	private String path;
@@ -89,7 +95,10 @@ public class Searcher<NodeType, EdgeType>
 		//this.freqThreshold= new IntFrequency(freqThreshold);
 		this.distanceThreshold=shortestDistance;
 		singleGraph = new Graph(1); //singleGraph = new Graph(1,freqThreshold); //id of graph object = 1, freqThreshold = freqThreshold
-		singleGraph.loadFromFile_Alejandra(path); //singleGraph.loadFromFile_Ehab(path); //we load the graph from the file we read
+		if(GraphSnapshot.isSnapshot(path))
+			singleGraph.loadFromSnapshot(path); //ALE, a graph saved by a previous run (-savesnapshot)
+		else
+			singleGraph.loadFromFile_Alejandra(path); //singleGraph.loadFromFile_Ehab(path); //we load the graph from the file we read
 		this.path = path;
 		
 		
@@ -126,6 +135,7 @@ public class Searcher<NodeType, EdgeType>
 		HashMap<Integer, HashMap<Integer,myNode>> freqNodesByLabel=  singleGraph.getFreqNodesByLabel();
 		singleGraph.printSortedFreqLabels();
 		HashSet<Integer> contains= new HashSet<Integer>();
+		CSRAdjacency adjacency= singleGraph.getAdjacency();
 		//go through all labels of frequent nodes
 		for (Iterator<  java.util.Map.Entry< Integer, HashMap<Integer,myNode> > >  it= freqNodesByLabel.entrySet().iterator(); it.hasNext();) 
 		{
@@ -140,46 +150,39 @@ public class Searcher<NodeType, EdgeType>
 			{
 				myNode node =  iterator.next();
 				System.out.println("***ALE, tenemos este node" + node.getID() + " con esta label " + node.getLabel());
-				//ALE iterate over node's children (reachableNodes' KEYSET)
-				HashMap<Integer, ArrayList<MyPair<Integer, Double>>> neighbours=node.getReachableWithNodes();
+				//ALE iterate over node's children, grouped by (label of child node, edge label) in the adjacency
 				node.printOutReachableNodes();
-				if(neighbours!=null)
-				for (Iterator<Integer>  iter= neighbours.keySet().iterator(); iter.hasNext();) 
+				for (int group = adjacency.getFirstGroup(CSRAdjacency.OUT, node.getID()); group < adjacency.getLastGroup(CSRAdjacency.OUT, node.getID()); group++) 
 				{
-					int secondLabel = iter.next(); //ALE get the label of child node
+					int secondLabel = adjacency.getGroupLabel(CSRAdjacency.OUT, group); //ALE get the label of child node
+					if(!adjacency.isActive(secondLabel))
+						continue;
 					int labelA=sortedFrequentLabels.indexOf(firstLabel);
 					int labelB=sortedFrequentLabels.indexOf(secondLabel);
 					
-					//iterate over all neighbor nodes to get edge labels as well
-					//ALE for each label in reachableNodes map, iterate through the neighbors
-					for (Iterator<MyPair<Integer, Double>>  iter1= neighbours.get(secondLabel).iterator(); iter1.hasNext();)
+					//ALE every group has a single edge label, so there is one edge per group
+					double edgeLabel = adjacency.getGroupEdgeLabel(CSRAdjacency.OUT, group);
+					if(!freqEdgeLabels.contains(edgeLabel))
+						continue;
+					
+					final GSpanEdge<NodeType, EdgeType> gedge = new GSpanEdge <NodeType, EdgeType>().set(0, 1, labelA, (int)edgeLabel, labelB, 1, firstLabel, secondLabel);
+					
+					//ALE I think you first generate a label for the edge and add it to initials if it's not already there
+					if(!initials.containsKey(gedge))
 					{
-						MyPair<Integer, Double> mp = iter1.next();
-						double edgeLabel = mp.getB();
-						if(!freqEdgeLabels.contains(edgeLabel))
-							continue;
-						
-						int secondNodeID = mp.getA();
 					
-						final GSpanEdge<NodeType, EdgeType> gedge = new GSpanEdge <NodeType, EdgeType>().set(0, 1, labelA, (int)edgeLabel, labelB, 1, firstLabel, secondLabel);
-						
-						//ALE I think you first generate a label for the edge and add it to initials if it's not already there
-						if(!initials.containsKey(gedge))
-						{
-						
-							final ArrayList<GSpanEdge<NodeType, EdgeType>> parents = new ArrayList<GSpanEdge<NodeType, EdgeType>>(
-								2);
-							parents.add(gedge);
-							parents.add(gedge);
-						
-							HPListGraph<NodeType, EdgeType> lg = new HPListGraph<NodeType, EdgeType>();
-							gedge.addTo(lg);
-							DFSCode<NodeType, EdgeType> code = new DFSCode<NodeType,EdgeType>(sortedFrequentLabels,singleGraph,null).set(lg, gedge, gedge, parents);
+						final ArrayList<GSpanEdge<NodeType, EdgeType>> parents = new ArrayList<GSpanEdge<NodeType, EdgeType>>(
+							2);
+						parents.add(gedge);
+						parents.add(gedge);
+					
+						HPListGraph<NodeType, EdgeType> lg = new HPListGraph<NodeType, EdgeType>();
+						gedge.addTo(lg);
+						DFSCode<NodeType, EdgeType> code = new DFSCode<NodeType,EdgeType>(sortedFrequentLabels,singleGraph,null).set(lg, gedge, gedge, parents);
+					
+						initials.put(gedge, code); //ALE we add the gedge label and the subgraph code
 						
-							initials.put(gedge, code); //ALE we add the gedge label and the subgraph code
-							
-							System.out.println("ALE agregamos nueva gedge " + gedge.toString() + " con code " + code.toString());
-						}
+						System.out.println("ALE agregamos nueva gedge " + gedge.toString() + " con code " + code.toString());
 					}
 				}
 			}
@@ -196,8 +199,8 @@ public class Searcher<NodeType, EdgeType>
 		}
 		System.out.println("ALE done deleting non candidates!");
 		
-		neighborLabels = new Hashtable();
-		revNeighborLabels = new Hashtable();
+		HashMap<Integer, List<Integer>> neighbors = new HashMap<Integer, List<Integer>>();
+		HashMap<Integer, List<Integer>> revNeighbors = new HashMap<Integer, List<Integer>>();
 		for (final Iterator<Map.Entry<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>>> eit = initials
 				.entrySet().iterator(); eit.hasNext();) 
 		{
@@ -215,22 +218,24 @@ public class Searcher<NodeType, EdgeType>
 				labelA = edge.getThelabelA();
 			}
 			//add to labels
-			Vector temp = neighborLabels.get(labelA);
+			List<Integer> temp = neighbors.get(labelA);
 			if(temp==null)
 			{
-				temp = new Vector();
-				neighborLabels.put(labelA, temp);
+				temp = new ArrayList<Integer>();
+				neighbors.put(labelA, temp);
 			}
-			temp.addElement(labelB);
+			temp.add(labelB);
 			//add reverse labels
-			temp = revNeighborLabels.get(labelB);
+			temp = revNeighbors.get(labelB);
 			if(temp==null)
 			{
-				temp = new Vector();
-				revNeighborLabels.put(labelB, temp);
+				temp = new ArrayList<Integer>();
+				revNeighbors.put(labelB, temp);
 			}
-			temp.addElement(labelA);
+			temp.add(labelA);
 		}
+		neighborLabels = Collections.unmodifiableMap(neighbors);
+		revNeighborLabels = Collections.unmodifiableMap(revNeighbors);
 		
 		
 	}
@@ -262,12 +267,63 @@ public class Searcher<NodeType, EdgeType>
 	public void search()
 	{
 		Algorithm<NodeType, EdgeType> algo = new Algorithm<NodeType, EdgeType>();
-		algo.setInitials(initials);
-		RecursiveStrategy<NodeType, EdgeType> rs = new RecursiveStrategy<NodeType, EdgeType>();
-		result= (ArrayList<HPListGraph<NodeType, EdgeType>>)rs.search(algo,this.freqThreshold.intValue()); //ALE THIS HOLDS THE FREQUENT SUBGRAPHS STRUCTURE
+		if(Settings.topK>0)
+		{
+			//ALE the most frequent seeds first, so the threshold rises early
+			TopKPatterns.start(Settings.topK, this.freqThreshold.intValue());
+			algo.setInitials(getInitialsByFrequency());
+		}
+		else
+			algo.setInitials(initials);
+		if(Settings.latticeThreads>1)
+		{
+			ParallelRecursiveStrategy<NodeType, EdgeType> prs = new ParallelRecursiveStrategy<NodeType, EdgeType>();
+			result= (ArrayList<HPListGraph<NodeType, EdgeType>>)prs.search(algo,this.freqThreshold.intValue()); //ALE same result, in the same order
+			fsInfo = prs.getFSInfo();
+		}
+		else
+		{
+			RecursiveStrategy<NodeType, EdgeType> rs = new RecursiveStrategy<NodeType, EdgeType>();
+			result= (ArrayList<HPListGraph<NodeType, EdgeType>>)rs.search(algo,this.freqThreshold.intValue()); //ALE THIS HOLDS THE FREQUENT SUBGRAPHS STRUCTURE
+			
+			//ALE get FSInfo
+			fsInfo = rs.getFSInfo(); //ALE with this we can reconstruct every individual subgraph
+		}
 		
-		//ALE get FSInfo
-		fsInfo = rs.getFSInfo(); //ALE with this we can reconstruct every individual subgraph
+		if(Settings.topK>0)
+			keepTopK();
+	}
+	
+	//ALE only the top-k patterns, by descending support
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void keepTopK()
+	{
+		result = new ArrayList<HPListGraph<NodeType, EdgeType>>();
+		fsInfo = new ArrayList<DFSCode<NodeType, EdgeType>>();
+		for (DFSCode code : TopKPatterns.finish()) 
+		{
+			result.add(code.getHPlistGraph());
+			fsInfo.add(code);
+		}
+	}
+	
+	//ALE
+	private Map<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>> getInitialsByFrequency()
+	{
+		ArrayList<Map.Entry<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>>> entries = 
+				new ArrayList<Map.Entry<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>>>(initials.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>>>() 
+		{
+			public int compare(Map.Entry<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>> a, 
+					Map.Entry<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>> b)
+			{
+				return ((IntFrequency)b.getValue().frequency()).intValue()-((IntFrequency)a.getValue().frequency()).intValue();
+			}
+		});
+		LinkedHashMap<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>> sorted = new LinkedHashMap<GSpanEdge<NodeType, EdgeType>, DFSCode<NodeType, EdgeType>>();
+		for (int i = 0; i < entries.size(); i++) 
+			sorted.put(entries.get(i).getKey(), entries.get(i).getValue());
+		return sorted;
 	}
 	
 	//ALE
@@ -282,11 +338,11 @@ public class Searcher<NodeType, EdgeType>
 	}
 	
 	//ALE - call this once we have result
-	public void initFrequentStructures(HashMap<String, Boolean> alreadyMined, int minSize)
+	public void initFrequentStructures(HashMap<PatternKey, Boolean> alreadyMined, int minSize)
 	{
 		for(int i = 0; i < fsInfo.size(); i++)
 		{
-			String key = result.get(i).toString();
+			PatternKey key = PatternKey.of(result.get(i));
 			if(result.get(i).getNodeCount() >= minSize && !alreadyMined.containsKey(key))
 			{
 				//if(i == 36)
@@ -296,7 +352,7 @@ public class Searcher<NodeType, EdgeType>
 				result.get(i).buildGenericGraph(singleGraph);
 				result.get(i).generateSubgraphInstances();
 				//}
-				alreadyMined.put(key, false);
+				alreadyMined.put(key.intern(), false);
 			}
 			
 		}
@@ -314,6 +370,12 @@ public class Searcher<NodeType, EdgeType>
 
 	}
 	
+	//ALE - support of the i-th frequent subgraph (exact only when Settings.exactSupport is on)
+	public int getSupport(int i)
+	{
+		return ((IntFrequency)fsInfo.get(i).frequency()).intValue();
+	}
+	
 	private int getNumOfDistinctLabels(HPListGraph<NodeType, EdgeType> list)
     {
         HashSet<Integer> difflabels= new HashSet<Integer>();
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import dataStructures.DFSCode;
+import dataStructures.HPListGraph;
+import dataStructures.IntFrequency;
+
+/**
+ * ALE - the best supports found so far by a top-k search (-topk K), in a min-heap. Once K patterns of the minimum size
+ * are known, the support of the K-th one is the threshold: by anti-monotonicity no extension of a pattern below it can 
+ * be in the result, so FrequencyPruningStep and DFSSearch use it in place of the (lower) starting threshold.
+ * Patterns tied with the K-th support are all kept, so the result does not depend on the order of the search.
+ */
+public class TopKPatterns 
+{
+	private static int k=-1;
+	private static volatile int threshold;
+	private static PriorityQueue<DFSCode<?, ?>> heap;
+	
+	private static final Comparator<DFSCode<?, ?>> BY_SUPPORT= new Comparator<DFSCode<?, ?>>() 
+	{
+		public int compare(DFSCode<?, ?> a, DFSCode<?, ?> b)
+		{
+			return getSupport(a)-getSupport(b);
+		}
+	};
+	
+	public static synchronized void start(int numberOfPatterns, int freqThreshold)
+	{
+		k= numberOfPatterns;
+		threshold= freqThreshold;
+		heap= new PriorityQueue<DFSCode<?, ?>>(numberOfPatterns+1, BY_SUPPORT);
+	}
+	
+	public static boolean isOn()
+	{
+		return k>0;
+	}
+	
+	public static int getThreshold()
+	{
+		return threshold;
+	}
+	
+	/**
+	 * @param code a pattern of the minimum size whose (exact) support reached the threshold
+	 */
+	public static synchronized void offer(DFSCode<?, ?> code)
+	{
+		if(getSupport(code)<threshold)
+			return;
+		heap.add(code);
+		if(heap.size()<k)
+			return;
+		//drop the lowest support while K patterns are left without it
+		ArrayList<DFSCode<?, ?>> lowest= new ArrayList<DFSCode<?, ?>>();
+		while(true)
+		{
+			int support= getSupport(heap.peek());
+			while(!heap.isEmpty() && getSupport(heap.peek())==support)
+				lowest.add(heap.poll());
+			if(heap.size()<k)
+				break;
+			lowest.clear();
+		}
+		heap.addAll(lowest);
+		threshold= Math.max(threshold, getSupport(heap.peek()));
+	}
+	
+	/**
+	 * ends the search, returns the patterns by descending support (ties in DFS code order)
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static synchronized ArrayList<DFSCode> finish()
+	{
+		ArrayList<DFSCode> codes= new ArrayList<DFSCode>(heap);
+		Collections.sort(codes, new Comparator<DFSCode>() 
+		{
+			public int compare(DFSCode a, DFSCode b)
+			{
+				int bySupport= getSupport(b)-getSupport(a);
+				return bySupport!=0 ? bySupport : a.compareTo(b);
+			}
+		});
+		System.out.println("ALE top "+k+": "+codes.size()+" patterns, threshold reached "+threshold);
+		k=-1;
+		heap= null;
+		return codes;
+	}
+	
+	private static int getSupport(DFSCode<?, ?> code)
+	{
+		return ((IntFrequency)code.frequency()).intValue();
+	}
+}
@@ -27,17 +27,41 @@ public class TimedOutSearchStats {
 	public static long totalNumber;
 	public static long numberOfDomains;
 	public static long maximum = 0;
+	public static long numberOfSearches;
 		
 	public static long getElementSize()
 	{
 		return 56;
 	}
 	
+	//ALE - the counters are updated by the searches of every lattice thread (Settings.latticeThreads)
+	public static synchronized void countDomain(long size)
+	{
+		numberOfDomains++;
+		if(size>maximum)
+			maximum = size;
+	}
+	
+	public static synchronized void countSearch(boolean timedOut)
+	{
+		numberOfSearches++;
+		if(timedOut)
+			totalNumber++;
+	}
+	
 	public static double getAverage()
 	{
 		return totalNumber/numberOfDomains;
 	}
 	
+	//ALE - fraction of the time limited searches that ran out of time
+	public static synchronized double getTimeoutRate()
+	{
+		if(numberOfSearches==0)
+			return 0;
+		return ((double)totalNumber)/numberOfSearches;
+	}
+	
 	public static String getData()
 	{
 		return "Total: "+totalNumber+", Domains: "+numberOfDomains+", Average:"+getAverage()+", maximum: "+maximum;
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package utilities;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dataStructures.PatternKey;
+
+/**
+ * ALE - result of DFSCode.isCanonical() by the PatternKey of the pattern graph. The graph of a DFS code has the nodes 
+ * numbered and the edges ordered as in the code, so the key identifies the code. Every threshold of the search 
+ * (Dijkstra.main) and every restart builds the same codes again, and their minimum DFS code search is not repeated.
+ * The table is emptied when it reaches MAX_ENTRIES.
+ */
+public class CanonicalCache
+{
+	private static final int MAX_ENTRIES = 1<<20;
+	
+	private static final ConcurrentHashMap<PatternKey, Boolean> verdicts= new ConcurrentHashMap<PatternKey, Boolean>(1024);
+	
+	private static final AtomicLong hits= new AtomicLong();
+	private static final AtomicLong misses= new AtomicLong();
+	
+	/**
+	 * @return whether the code of this key is canonical, or null if it was not checked yet
+	 */
+	public static Boolean get(PatternKey key)
+	{
+		Boolean verdict= verdicts.get(key);
+		if(verdict==null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return verdict;
+	}
+	
+	public static void put(PatternKey key, boolean canonical)
+	{
+		if(verdicts.size()>=MAX_ENTRIES)
+			verdicts.clear();
+		verdicts.put(key, canonical);
+	}
+	
+	public static String getData()
+	{
+		return "Entries: "+verdicts.size()+", Hits: "+hits.get()+", Misses: "+misses.get();
+	}
+}
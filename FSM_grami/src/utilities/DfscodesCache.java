@@ -22,9 +22,234 @@ package utilities;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.LinkedHashMap;
 
-public class DfscodesCache 
+import dataStructures.PatternKey;
+
+/**
+ * ALE - the nonCandidates of every evaluated pattern (node ~ noncandidates), by the PatternKey of its graph.
+ * The entries are kept within Settings.cacheBudgetMB (estimated sizes) with W-TinyLFU: a new entry goes to a small LRU window, 
+ * and when it leaves the window it only replaces the least recently used entries of the main part if it has been asked for 
+ * more often than all of them. So the small sub-patterns that every decomposition looks up stay in, and the patterns 
+ * that nobody looks up again do not flush them.
+ * Shared by the lattice threads (Settings.latticeThreads). An entry is not modified once it has been put.
+ */
+public class DfscodesCache
 {
-	public static HashMap<String, HashMap<Integer, HashSet<Integer>>> cache= new HashMap<String, HashMap<Integer,HashSet<Integer>>>();
+	//part of the budget used by the window
+	private static final double WINDOW_FRACTION = 0.01;
+	
+	private static final LinkedHashMap<PatternKey, CacheEntry> window= new LinkedHashMap<PatternKey, CacheEntry>(64, 0.75f, true);
+	private static final LinkedHashMap<PatternKey, CacheEntry> main= new LinkedHashMap<PatternKey, CacheEntry>(1024, 0.75f, true);
+	private static final FrequencySketch sketch= new FrequencySketch(1<<16);
+
+	private static long windowBytes;
+	private static long mainBytes;
+	private static long hits;
+	private static long misses;
+	private static long evictions;
+	private static long rejections;
+
+	private static class CacheEntry
+	{
+		final PatternKey key;
+		final HashMap<Integer, HashSet<Integer>> nonCandidates;
+		final long size;
+
+		CacheEntry(PatternKey key, HashMap<Integer, HashSet<Integer>> nonCandidates, long size)
+		{
+			this.key=key;
+			this.nonCandidates=nonCandidates;
+			this.size=size;
+		}
+	}
+
+	/**
+	 * @return the nonCandidates stored for this key, or null. They must not be modified.
+	 */
+	public static synchronized HashMap<Integer, HashSet<Integer>> get(PatternKey key)
+	{
+		sketch.increment(key);
+		CacheEntry entry= window.get(key);
+		if(entry==null)
+			entry= main.get(key);
+		if(entry==null)
+		{
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.nonCandidates;
+	}
+
+	public static synchronized void put(PatternKey key, HashMap<Integer, HashSet<Integer>> nonCandidates)
+	{
+		remove(key);
+		CacheEntry entry= new CacheEntry(key, nonCandidates, getEstimatedSize(key, nonCandidates));
+		long budget= getBudget();
+		if(entry.size>budget)
+		{
+			rejections++;
+			return;
+		}
+		window.put(key, entry);
+		windowBytes+=entry.size;
+		long windowBudget= (long)(budget*WINDOW_FRACTION);
+		for (Iterator<CacheEntry> it = window.values().iterator(); windowBytes>windowBudget && it.hasNext();)
+		{
+			CacheEntry candidate= it.next();
+			it.remove();
+			windowBytes-=candidate.size;
+			admit(candidate, budget-windowBudget);
+		}
+	}
+	
+	//moves an entry that left the window to the main part, if it is worth it
+	private static void admit(CacheEntry candidate, long mainBudget)
+	{
+		if(mainBytes+candidate.size>mainBudget)
+		{
+			int candidateFrequency= sketch.frequency(candidate.key);
+			long freed=0;
+			int victims=0;
+			for (Iterator<CacheEntry> it = main.values().iterator(); it.hasNext() && mainBytes-freed+candidate.size>mainBudget;)
+			{
+				CacheEntry victim= it.next();
+				if(sketch.frequency(victim.key)>=candidateFrequency)
+				{
+					rejections++;
+					evictions++;
+					return;
+				}
+				freed+=victim.size;
+				victims++;
+			}
+			if(mainBytes-freed+candidate.size>mainBudget)
+			{
+				rejections++;
+				evictions++;
+				return;
+			}
+			Iterator<CacheEntry> it = main.values().iterator();
+			for (int i = 0; i < victims; i++)
+			{
+				it.next();
+				it.remove();
+			}
+			mainBytes-=freed;
+			evictions+=victims;
+		}
+		main.put(candidate.key, candidate);
+		mainBytes+=candidate.size;
+	}
+	
+	private static void remove(PatternKey key)
+	{
+		CacheEntry old= window.remove(key);
+		if(old!=null)
+			windowBytes-=old.size;
+		old= main.remove(key);
+		if(old!=null)
+			mainBytes-=old.size;
+	}
+
+	private static long getBudget()
+	{
+		if(Settings.cacheBudgetMB>=0)
+			return Settings.cacheBudgetMB*1024L*1024L;
+		return Runtime.getRuntime().maxMemory()/4;
+	}
+
+	//rough heap size on a 64 bit JVM with compressed references (small Integers are shared)
+	private static long getEstimatedSize(PatternKey key, HashMap<Integer, HashSet<Integer>> nonCandidates)
+	{
+		long size= 32+40+key.getSize(); //entry of the LinkedHashMap, CacheEntry, key
+		size+= 48+16*nonCandidates.size()*2; //HashMap and its table
+		for (HashSet<Integer> set : nonCandidates.values())
+		{
+			size+= 32+16+64; //node, key, HashSet
+			if(set!=null)
+				size+= set.size()*(32+8+16); //node, table slot, Integer
+		}
+		return size;
+	}
+
+	public static synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public static synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public static synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	public static synchronized long getRejections()
+	{
+		return rejections;
+	}
+
+	public static synchronized String getData()
+	{
+		return "Entries: "+(window.size()+main.size())+", Estimated size (bytes): "+(windowBytes+mainBytes)+" of "+getBudget()+", Hits: "+hits+", Misses: "+misses
+				+", Evictions: "+evictions+", Rejections: "+rejections;
+	}
+
+	/**
+	 * count-min sketch of how often each key is looked up. The counters are halved every 10 times their number
+	 * of increments, so old popularity fades out.
+	 */
+	private static class FrequencySketch
+	{
+		private static final int[] SEEDS= {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+		private final int[][] counters;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int width)
+		{
+			counters= new int[SEEDS.length][width];
+			mask= width-1;
+			sampleSize= 10*width;
+		}
+
+		void increment(PatternKey key)
+		{
+			int hash= key.hashCode();
+			for (int i = 0; i < SEEDS.length; i++)
+				counters[i][index(hash, i)]++;
+			if(++additions==sampleSize)
+				reset();
+		}
+
+		int frequency(PatternKey key)
+		{
+			int hash= key.hashCode();
+			int min= Integer.MAX_VALUE;
+			for (int i = 0; i < SEEDS.length; i++)
+				min= Math.min(min, counters[i][index(hash, i)]);
+			return min;
+		}
+
+		private int index(int hash, int row)
+		{
+			int h= hash*SEEDS[row];
+			return (h^(h>>>16))&mask;
+		}
+
+		private void reset()
+		{
+			for (int i = 0; i < counters.length; i++)
+				for (int j = 0; j < counters[i].length; j++)
+					counters[i][j]>>>=1;
+			additions/=2;
+		}
+	}
 }
@@ -19,6 +19,8 @@ along with Grami.  If not, see <http://www.gnu.org/licenses/>.
 
 package utilities;
 
+import CSP.PatternSearchPolicy;
+
 public class Settings 
 {
 
@@ -49,4 +51,51 @@ public class Settings
 	
 	//the maximum number of the same label appears in the resulted pattern
 	public static int numLabelAppears = -1;	
+	
+	//ALE - mine once at the minimum threshold and split the output by support, instead of re-mining per threshold
+	public static boolean singlePass = false;
+	
+	//ALE - validate every candidate so the computed support is the exact MNI support (not just ">= threshold")
+	public static boolean exactSupport = false;
+	
+	//ALE - time budget (milliseconds) for validating one candidate node before it is postponed as timed out
+	public static long searchTimeLimit = 5000;
+	
+	//ALE - if set, decides the time budget and the variable ordering of the searches pattern by pattern
+	public static PatternSearchPolicy searchPolicy = null;
+	
+	//ALE - time budget (milliseconds) for searchParticularExistance
+	public static long particularSearchTimeLimit = 7000;
+	
+	//ALE - the budget is doubled while the observed rate of timed out searches is above this rate, up to maxSearchTimeLimit
+	public static double targetTimeoutRate = 0.05;
+	public static long maxSearchTimeLimit = 80000;
+	
+	//ALE - number of threads validating the candidates of a variable in DFSSearch (1 = sequential)
+	public static int searchThreads = 1;
+	
+	//ALE - number of threads exploring the search lattice, each seed and subtree is a task of a work-stealing pool (1 = RecursiveStrategy)
+	public static int latticeThreads = 1;
+	
+	//ALE - memory budget of DfscodesCache in MB (-1 = a quarter of the maximum heap)
+	public static long cacheBudgetMB = -1;
+	
+	//ALE - if set, the loaded graph is saved to this file, which can then be given as the input file of the next runs
+	public static String snapshotFile = null;
+	
+	//ALE - if set, the outcome of every evaluated pattern is kept in this file, and a run restarted with the same file skips them
+	public static String storeFile = null;
+	
+	//ALE - if > 0, only the topK most frequent subgraphs are mined, in a single search whose threshold rises as they are found
+	public static int topK = -1;
+	
+	//ALE - only store the closed subgraphs (no child with the same support) or the maximal ones (no frequent child)
+	public static boolean closedOnly = false;
+	public static boolean maximalOnly = false;
+	
+	//ALE - maximum number of embeddings of a pattern kept for the searches of its children (0 = none)
+	public static int witnessLimit = 10000;
+	
+	//ALE - order of the variables in the searches: dfs, domain, constrained, cost or auto (see CSP.VariableOrderings)
+	public static String variableOrdering = "dfs";
 }
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2014 Mohammed Elseidy, Ehab Abdelhamid
+
+This file is part of Grami.
+
+Grami is free software: you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published by
+the Free Software Foundation, either version 2 of the License, or
+(at your option) any later version.
+
+Grami is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Grami.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package utilities;
+
+/**
+ * ALE - intersection kernels for sorted int arrays (the neighbor lists of the CSR adjacency), given as [from,to) ranges.
+ * Lists of similar sizes are merged. When one list is much longer (a hub vertex), each value of the short list 
+ * is galloped for in the long one, so the cost follows the short list.
+ */
+public class SortedIntersection 
+{
+	//above this size ratio, galloping beats merging
+	private static final int GALLOP_RATIO = 32;
+	
+	/**
+	 * writes the common values of a and b into out (sorted, at most min of both sizes), returns how many there are.
+	 * out can be a itself when aFrom is 0: every value is written at or before the position it was read from.
+	 */
+	public static int intersect(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, int[] out)
+	{
+		int aSize = aTo-aFrom;
+		int bSize = bTo-bFrom;
+		if(aSize==0 || bSize==0 || a[aTo-1]<b[bFrom] || b[bTo-1]<a[aFrom])
+			return 0;
+		if(aSize>bSize)
+			return intersect(b, bFrom, bTo, a, aFrom, aTo, out);
+		if(bSize/aSize>=GALLOP_RATIO)
+			return gallop(a, aFrom, aTo, b, bFrom, bTo, out);
+		return merge(a, aFrom, aTo, b, bFrom, bTo, out);
+	}
+	
+	/**
+	 * true if a and b have a common value, without building the intersection
+	 */
+	public static boolean intersects(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo)
+	{
+		int aSize = aTo-aFrom;
+		int bSize = bTo-bFrom;
+		if(aSize==0 || bSize==0 || a[aTo-1]<b[bFrom] || b[bTo-1]<a[aFrom])
+			return false;
+		if(aSize>bSize)
+			return intersects(b, bFrom, bTo, a, aFrom, aTo);
+		if(bSize/aSize>=GALLOP_RATIO)
+		{
+			int j = bFrom;
+			for (int i = aFrom; i < aTo; i++) 
+			{
+				j = gallopTo(b, j, bTo, a[i]);
+				if(j==bTo)
+					return false;
+				if(b[j]==a[i])
+					return true;
+			}
+			return false;
+		}
+		int i = aFrom;
+		int j = bFrom;
+		while(i<aTo && j<bTo)
+		{
+			int x = a[i];
+			int y = b[j];
+			if(x==y)
+				return true;
+			if(x<y)
+				i++;
+			else
+				j++;
+		}
+		return false;
+	}
+	
+	private static int merge(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, int[] out)
+	{
+		int size = 0;
+		int i = aFrom;
+		int j = bFrom;
+		while(i<aTo && j<bTo)
+		{
+			int x = a[i];
+			int y = b[j];
+			if(x==y)
+			{
+				if(size==0 || out[size-1]!=x) //the lists may repeat a value (parallel edges)
+					out[size++] = x;
+				i++;
+				j++;
+			}
+			else if(x<y)
+				i++;
+			else
+				j++;
+		}
+		return size;
+	}
+	
+	private static int gallop(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, int[] out)
+	{
+		int size = 0;
+		int j = bFrom;
+		for (int i = aFrom; i < aTo; i++) 
+		{
+			int x = a[i];
+			j = gallopTo(b, j, bTo, x);
+			if(j==bTo)
+				break;
+			if(b[j]==x && (size==0 || out[size-1]!=x))
+				out[size++] = x;
+		}
+		return size;
+	}
+	
+	//first position in [from,to) of b with a value >= x: doubling steps, then a binary search in the last step
+	private static int gallopTo(int[] b, int from, int to, int x)
+	{
+		if(from>=to || b[from]>=x)
+			return from;
+		int low = from;
+		int step = 1;
+		int high = from+1;
+		while(high<to && b[high]<x)
+		{
+			low = high;
+			step <<= 1;
+			high = low+step;
+		}
+		if(high>to)
+			high = to;
+		//b[low] < x, and b[high] >= x or high==to
+		while(low+1<high)
+		{
+			int middle = (low+high)>>>1;
+			if(b[middle]<x)
+				low = middle;
+			else
+				high = middle;
+		}
+		return high;
+	}
+}
@@ -27,37 +27,44 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 
 import CSP.VariableCandidates;
+import dataStructures.IntRange;
 
 
 public class Util 
 {
 
 	
-	public static ArrayList<MyPair<Integer, Double>> getIntersection(ArrayList<ArrayList<MyPair<Integer, Double>>> sets)
+	//ALE the sets are sorted neighbor lists: they are intersected from the smallest one with the SortedIntersection kernels, 
+	//and we stop as soon as the intersection is empty
+	public static IntRange getIntersection(ArrayList<IntRange> sets)
 	{
-		ArrayList<MyPair<Integer, Double>> inter= new ArrayList<MyPair<Integer, Double>>();
 		if(sets.size()==0)
-			return inter;
-		ArrayList<MyPair<Integer, Double>> firstSet= sets.get(0);
-		if(firstSet==null) return new ArrayList<MyPair<Integer, Double>>();
-		for (int i = 0; i < firstSet.size(); i++) 
+			return IntRange.EMPTY;
+		if(sets.size()==1)
+			return sets.get(0);
+		
+		IntRange[] bySize= sets.toArray(new IntRange[sets.size()]);
+		for (int i = 1; i < bySize.length; i++) 
 		{
-			MyPair<Integer, Double> element=firstSet.get(i);
-			boolean doesIntersect=true;
-			for (int j = 1; j < sets.size(); j++) 
-			{
-				ArrayList<MyPair<Integer, Double>> otherset=sets.get(j);
-				if(otherset==null) return new ArrayList<MyPair<Integer, Double>>();
-				if(MyPair.getIndexOf(otherset, element.getA())==-1)
-				{
-					doesIntersect=false;
-					break;
-				}
-			}
-			if(doesIntersect)
-				inter.add(element);
+			IntRange set= bySize[i];
+			int j= i;
+			for (; j > 0 && bySize[j-1].size()>set.size(); j--) 
+				bySize[j]= bySize[j-1];
+			bySize[j]= set;
 		}
-		return inter;
+		
+		IntRange smallest= bySize[0];
+		if(smallest.size()==0)
+			return IntRange.EMPTY;
+		int[] inter= new int[smallest.size()];
+		IntRange other= bySize[1];
+		int size= SortedIntersection.intersect(smallest.getArray(), smallest.getFrom(), smallest.getTo(), other.getArray(), other.getFrom(), other.getTo(), inter);
+		for (int j = 2; j < bySize.length && size>0; j++) 
+		{
+			other= bySize[j];
+			size= SortedIntersection.intersect(inter, 0, size, other.getArray(), other.getFrom(), other.getTo(), inter);
+		}
+		return new IntRange(inter, 0, size);
 	}
 	
 	public static ArrayList<Integer> getIntersection(ArrayList<Integer> set1,ArrayList<Integer> set2)
@@ -81,19 +88,13 @@ public class Util
 		for (int i = 0; i < sets.size(); i++) 
 		{
 			VariableCandidates firstVariableCandidate=sets.get(i);
-			ArrayList<MyPair<Integer, Double>> firstElement=firstVariableCandidate.getCandidates();
-			if(firstElement==null)continue;
+			IntRange firstElement=firstVariableCandidate.getCandidates();
 			for (int j = i+1; j < sets.size(); j++) 
 			{
 				VariableCandidates secondVariableCandidate=sets.get(j);
-				ArrayList<MyPair<Integer, Double>> secondElement=secondVariableCandidate.getCandidates();
-				if(secondElement==null)continue;
-				boolean doesIntersect=false;
-				for (int k = 0; k < firstElement.size(); k++) 
-				{
-					if(MyPair.getIndexOf(secondElement, firstElement.get(k).getA())!=-1)
-					{doesIntersect=true; break;}
-				}
+				IntRange secondElement=secondVariableCandidate.getCandidates();
+				boolean doesIntersect=SortedIntersection.intersects(firstElement.getArray(), firstElement.getFrom(), firstElement.getTo(), 
+						secondElement.getArray(), secondElement.getFrom(), secondElement.getTo());
 				if(doesIntersect==false)
 					points.add(new Point(firstVariableCandidate.getVariableID(),secondVariableCandidate.getVariableID()));
 			}